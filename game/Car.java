@@ -11,10 +11,14 @@ import java.awt.event.*;
  * AUTHORS: Onkar Bajwa, Natheer Muwonge
  */
 public class Car extends Polygon implements KeyListener, Updatable {
+    static final Color FILL = new Color(120, 200, 120);
+
     private double stepSize = 3.3;  // pixels per frame
     private double rotStep = 3.4;  // degrees per frame (target turn rate)
     private double rotVelocity = 0.0; // smoothed turn velocity
-    private boolean forward, left, right;
+    // written by the AWT event thread, read by the simulation thread
+    private volatile boolean forward, left, right;
+    private volatile int inputVersion = 0; // bumped whenever the steering input changes
 
     /**
      * Constructs a new Car with the specified shape, position, and rotation.
@@ -61,29 +65,62 @@ public class Car extends Polygon implements KeyListener, Updatable {
         int n = pts.length;
         int[] xs = new int[n];
         int[] ys = new int[n];
-
-        // Also compute the current polygon center for the heading line
-        double cx = 0, cy = 0;
         for (int i = 0; i < n; i++) {
             xs[i] = (int) Math.round(pts[i].x);
             ys[i] = (int) Math.round(pts[i].y);
-            cx += pts[i].x;
-            cy += pts[i].y;
         }
-        cx /= n; cy /= n;
 
         // Car body
-        g.setColor(new Color(120, 200, 120));
+        g.setColor(FILL);
         g.fillPolygon(xs, ys, n);
 
         // Heading indicator from the transformed center
         g.setColor(Color.WHITE);
+        Point[] line = getHeadingLine();
+        g.drawLine((int) Math.round(line[0].x), (int) Math.round(line[0].y),
+                   (int) Math.round(line[1].x), (int) Math.round(line[1].y));
+    }
+
+    /**
+     * Gets the heading indicator: a 20 pixel line from the center of the car
+     * pointing the way it's facing.
+     * 
+     * @return Start and end point of the line
+     */
+    public Point[] getHeadingLine() {
+        // current polygon center (average of the transformed points)
+        Point[] pts = this.getPoints();
+        double cx = 0, cy = 0;
+        for (Point p : pts) {
+            cx += p.x;
+            cy += p.y;
+        }
+        cx /= pts.length; cy /= pts.length;
+
         double rad = Math.toRadians(this.rotation);
-        int x1 = (int) Math.round(cx);
-        int y1 = (int) Math.round(cy);
-        int x2 = (int) Math.round(cx + 20 * Math.cos(rad));
-        int y2 = (int) Math.round(cy + 20 * Math.sin(rad));
-        g.drawLine(x1, y1, x2, y2);
+        return new Point[] {
+            new Point(cx, cy),
+            new Point(cx + 20 * Math.cos(rad), cy + 20 * Math.sin(rad))
+        };
+    }
+
+    /**
+     * Gets the farthest the car can travel in a single frame
+     * 
+     * @return Maximum distance moved per frame
+     */
+    public double getMaxSpeed() {
+        return stepSize;
+    }
+
+    /**
+     * Gets a counter that changes every time the steering input changes.
+     * Lets other classes notice new input without listening for keys themselves.
+     * 
+     * @return Current input version
+     */
+    public int getInputVersion() {
+        return inputVersion;
     }
 
     // KeyListener
@@ -103,9 +140,9 @@ public class Car extends Polygon implements KeyListener, Updatable {
      */
     @Override public void keyPressed(KeyEvent e) {
         switch (e.getKeyCode()) {
-            case KeyEvent.VK_W: case KeyEvent.VK_UP:    forward = true; break;
-            case KeyEvent.VK_A: case KeyEvent.VK_LEFT:  left = true;    break;
-            case KeyEvent.VK_D: case KeyEvent.VK_RIGHT: right = true;   break;
+            case KeyEvent.VK_W: case KeyEvent.VK_UP:    if (!forward) inputVersion++; forward = true; break;
+            case KeyEvent.VK_A: case KeyEvent.VK_LEFT:  if (!left) inputVersion++;    left = true;    break;
+            case KeyEvent.VK_D: case KeyEvent.VK_RIGHT: if (!right) inputVersion++;   right = true;   break;
         }
     }
 
@@ -117,9 +154,9 @@ public class Car extends Polygon implements KeyListener, Updatable {
      */
     @Override public void keyReleased(KeyEvent e) {
         switch (e.getKeyCode()) {
-            case KeyEvent.VK_W: case KeyEvent.VK_UP:    forward = false; break;
-            case KeyEvent.VK_A: case KeyEvent.VK_LEFT:  left = false;    break;
-            case KeyEvent.VK_D: case KeyEvent.VK_RIGHT: right = false;   break;
+            case KeyEvent.VK_W: case KeyEvent.VK_UP:    if (forward) inputVersion++; forward = false; break;
+            case KeyEvent.VK_A: case KeyEvent.VK_LEFT:  if (left) inputVersion++;    left = false;    break;
+            case KeyEvent.VK_D: case KeyEvent.VK_RIGHT: if (right) inputVersion++;   right = false;   break;
         }
     }
 }
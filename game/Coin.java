@@ -6,26 +6,32 @@ import java.awt.*;
  * CLASS: Coin
  * DESCRIPTION: Coins are collectibles that scroll upward and spin.
  *              When coins are collected, the player is rewarded points
+ *              The scrolling comes from the coin's ScrollLayer, a coin only updates its spin.
  *              Extends Polygon, implements Updatable (for move/paint) and Collidable.
  * AUTHORS: Onkar Bajwa and Natheer Muwonge
  */
 
 class Coin extends Polygon implements Updatable, Collidable {
-    private static final int MOVE_SPEED = 3;     // pixels/frame upward
+    static final int MOVE_SPEED = 3;             // pixels/frame upward
     private static final double SPIN_PER_TICK = 4.0; // deg/frame spin
+    static final Color FILL = new Color(255, 215, 0);  // gold
+    static final Color OUTLINE = Color.BLACK;
 
+    private final ScrollLayer layer;
     private boolean collected = false;
     private final int value = 1;      // Each coin has a value of 1
 
     /**
      * Constructs a new Coin with the specified shape, position, and rotation. 
      * 
-     * @param inShape Point array holding points that make the shape of the coin
-     * @param inPosition Point that has the initial position of the coin
+     * @param inShape PolygonShape of the coin, shared by every coin that looks the same
+     * @param inPosition Point that has the initial position of the coin, in the layer's world space
      * @param inRotation Initial degree of rotation for the coin
+     * @param inLayer ScrollLayer that scrolls the coin up the screen
      */
-    public Coin(Point[] inShape, Point inPosition, double inRotation) {
+    public Coin(PolygonShape inShape, Point inPosition, double inRotation, ScrollLayer inLayer) {
         super(inShape, inPosition, inRotation);
+        layer = inLayer;
     }
 
     /** 
@@ -46,16 +52,32 @@ class Coin extends Polygon implements Updatable, Collidable {
     */
     public int getValue() { return value; }
 
+    /**
+     * Gets the layer the coin scrolls with
+     * 
+     * @return ScrollLayer of the coin
+     */
+    public ScrollLayer getLayer() { return layer; }
+
+    /**
+     * Check if the coin has scrolled completely off the top of the screen.
+     * Uses the bounding circle, so the answer doesn't depend on the spin.
+     * 
+     * @return true if the whole coin is above the screen
+     */
+    public boolean isOffscreen() {
+        return getWorldCenter().y - layer.getOffset() + getBoundingRadius() < 0;
+    }
+
     // Updatable Implementation
 
     /**
      * If the coin is already collected, no movement occurs.
-     * Otherwise, the coin scrolls upwards and rotates while doing so
+     * Otherwise, the coin spins; scrolling up is handled by its layer
      */
     @Override
     public void move() {
         if (collected) return;
-        this.position.y -= MOVE_SPEED;                 // scroll up
         this.rotation = (this.rotation + SPIN_PER_TICK) % 360; // spin
     }
 
@@ -67,7 +89,7 @@ class Coin extends Polygon implements Updatable, Collidable {
     @Override
     public void paint(Graphics g) {
         if (collected) return;
-        Point[] pts = this.getPoints();
+        Point[] pts = this.getPoints(layer.getOffset());
         int n = pts.length;
         int[] xs = new int[n];
         int[] ys = new int[n];
@@ -75,9 +97,9 @@ class Coin extends Polygon implements Updatable, Collidable {
             xs[i] = (int)Math.round(pts[i].x);
             ys[i] = (int)Math.round(pts[i].y);
         }
-        g.setColor(new Color(255, 215, 0)); // gold
+        g.setColor(FILL);
         g.fillPolygon(xs, ys, n);
-        g.setColor(Color.BLACK);
+        g.setColor(OUTLINE);
         g.drawPolygon(xs, ys, n);
     }
 
@@ -86,15 +108,11 @@ class Coin extends Polygon implements Updatable, Collidable {
     /**
      * Check if the coin collides with another polygon
      * 
-     * @param other The other polygon being checking for collision
+     * @param other The other polygon being checking for collision, in screen space
      * @return true if a collision is detected
      */
     @Override
     public boolean collides(Polygon other) {
-        // any of my points inside other?
-        for (Point p : this.getPoints()) if (other.contains(p)) return true;
-        // any of other's points inside me?
-        for (Point p : other.getPoints()) if (this.contains(p)) return true;
-        return false;
+        return other.collides(this, layer.getOffset());
     }
 }
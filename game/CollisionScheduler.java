@@ -0,0 +1,99 @@
+package game;
+
+/**
+ * CLASS: CollisionScheduler
+ * DESCRIPTION: Decides when the car actually needs to be tested against an entity.
+ *              After a miss, the gap between the two bounding circles divided by the
+ *              fastest they can close on each other gives the earliest tick a contact
+ *              could happen, and the pair is not re-tested before then.
+ *              Every schedule is dropped when the car's input changes or it is teleported.
+ *              Schedules live on the entities themselves as plain longs, so keeping
+ *              them up to date allocates nothing.
+ * AUTHORS: Onkar Bajwa, Natheer Muwonge
+ */
+class CollisionScheduler {
+    private int epoch = 0; // schedules from an older epoch are ignored
+    private long tick = 0;
+    private int lastInputVersion = -1;
+    private long testsRun = 0;
+
+    /**
+     * Advances to the next tick. Call once per simulated frame before any tests.
+     *
+     * @param car The player car every entity is tested against
+     */
+    void beginTick(Car car) {
+        tick++;
+        if (car.getInputVersion() != lastInputVersion) {
+            lastInputVersion = car.getInputVersion();
+            invalidate();
+        }
+    }
+
+    /**
+     * Tests the car against an entity, unless the entity was scheduled for later
+     *
+     * @param car The player car
+     * @param other The entity being tested
+     * @param layer ScrollLayer the entity scrolls with
+     * @return true if the two polygons intersect this tick
+     */
+    boolean collides(Car car, Polygon other, ScrollLayer layer) {
+        if (other.checkEpoch == epoch && other.nextCheckTick > tick) return false;
+
+        testsRun++;
+        if (car.collides(other, layer.getOffset())) {
+            forget(other);
+            return true;
+        }
+        other.nextCheckTick = tick + ticksUntilPossibleContact(car, other, layer);
+        other.checkEpoch = epoch;
+        return false;
+    }
+
+    /**
+     * Gets the number of exact polygon tests run so far
+     *
+     * @return Total tests that weren't skipped
+     */
+    long getTestsRun() {
+        return testsRun;
+    }
+
+    /**
+     * Forgets the schedule of an entity that is no longer in play
+     *
+     * @param other The entity being removed
+     */
+    void forget(Polygon other) {
+        other.checkEpoch = -1;
+    }
+
+    /**
+     * Drops every schedule, so each entity is tested again on the next tick.
+     * Used when the car jumps (wrapping, reset) instead of moving continuously,
+     * or when a scroll speed changes and the old bounds no longer hold.
+     */
+    void invalidate() {
+        epoch = (epoch + 1) & Integer.MAX_VALUE; // never -1, which means "unscheduled"
+    }
+
+    /**
+     * Conservative number of ticks before the bounding circles of the two polygons can touch
+     *
+     * @param car The player car
+     * @param other The entity being tested
+     * @param layer ScrollLayer the entity scrolls with
+     * @return Ticks to wait before testing again, at least 1
+     */
+    private long ticksUntilPossibleContact(Car car, Polygon other, ScrollLayer layer) {
+        Point a = car.getWorldCenter();
+        Point b = other.getWorldCenter();
+        double dy = a.y - (b.y - layer.getOffset());
+        double gap = Math.hypot(a.x - b.x, dy)
+                   - car.getBoundingRadius() - other.getBoundingRadius();
+        double closingSpeed = car.getMaxSpeed() + Math.abs(layer.getSpeed());
+        if (gap <= 0 || closingSpeed <= 0) return 1;
+        return Math.max(1, (long) (gap / closingSpeed));
+    }
+}
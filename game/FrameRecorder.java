@@ -0,0 +1,173 @@
+package game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CLASS: FrameRecorder
+ * DESCRIPTION: Records every composited frame to a raw file without holding up the game.
+ *              The render thread only copies the pixels into one of a few pooled direct
+ *              buffers; a background thread writes them out through a FileChannel.
+ *              When the writer falls behind and the pool runs dry, frames are dropped
+ *              (and counted) instead of making the render thread wait.
+ * FILE FORMAT: All numbers little-endian.
+ *              Header: "RGFR", int version (1), int width, int height.
+ *              Each frame: long frame index, long System.nanoTime() of the capture,
+ *              then width*height ints of 0x00RRGGBB (bytes B,G,R,0, i.e. ffmpeg's bgr0).
+ *              Gaps in the frame index are dropped frames.
+ * AUTHORS: Onkar Bajwa, Natheer Muwonge
+ */
+class FrameRecorder {
+    private static final int POOL_SIZE = 8; // frames that can wait for the writer
+    private static final int VERSION = 1;
+
+    /**
+     * INNER CLASS: Frame
+     * DESCRIPTION: One pooled direct buffer plus the details of the frame it holds
+     */
+    private static class Frame {
+        final ByteBuffer bytes;
+        final IntBuffer pixels;
+        long index, nanos;
+
+        Frame(int pixelCount) {
+            bytes = ByteBuffer.allocateDirect(pixelCount * 4).order(ByteOrder.LITTLE_ENDIAN);
+            pixels = bytes.asIntBuffer();
+        }
+    }
+
+    private static final Frame STOP = new Frame(0); // tells the writer to finish up
+
+    private final Path file;
+    private final int width, height;
+    private final FileChannel channel;
+    private final BlockingQueue<Frame> free = new ArrayBlockingQueue<>(POOL_SIZE);
+    // at most every pooled frame plus STOP can be waiting, so neither queue ever allocates
+    private final BlockingQueue<Frame> ready = new ArrayBlockingQueue<>(POOL_SIZE + 1);
+    private final ByteBuffer frameHeader = ByteBuffer.allocateDirect(16).order(ByteOrder.LITTLE_ENDIAN);
+    private final Thread writer;
+
+    private final AtomicLong captured = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean failed = false;
+    private long nextIndex = 0; // render thread only
+
+    /**
+     * Constructs a FrameRecorder writing to a new file and starts its writer thread
+     *
+     * @param file File the frames are written to (replaced if it exists)
+     * @param width Width of every frame
+     * @param height Height of every frame
+     * @throws IOException if the file can't be opened or the header can't be written
+     */
+    FrameRecorder(Path file, int width, int height) throws IOException {
+        this.file = file;
+        this.width = width;
+        this.height = height;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                   StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] {'R', 'G', 'F', 'R'}).putInt(VERSION).putInt(width).putInt(height);
+        header.flip();
+        writeFully(header);
+
+        for (int i = 0; i < POOL_SIZE; i++) free.add(new Frame(width * height));
+
+        writer = new Thread(this::writeLoop, "RacerGame-recorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Copies a frame's pixels and queues them for writing. Never blocks;
+     * if no buffer is free the frame is dropped.
+     * Must always be called from the same thread
+     *
+     * @param argb Pixels of the frame, width*height ints in row order
+     * @return true if the frame was queued, false if it was dropped
+     */
+    boolean capture(int[] argb) {
+        long index = nextIndex++;
+        Frame frame = free.poll();
+        if (frame == null || failed) {
+            if (frame != null) free.add(frame);
+            dropped.incrementAndGet();
+            return false;
+        }
+        frame.index = index;
+        frame.nanos = System.nanoTime();
+        frame.pixels.clear();
+        frame.pixels.put(argb, 0, width * height);
+        ready.add(frame);
+        return true;
+    }
+
+    /**
+     * Writes out every frame still queued, then stops the writer and closes the file
+     */
+    void close() {
+        ready.add(STOP);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** @return File the frames are written to */
+    Path getFile() { return file; }
+
+    /** @return Frames captured so far */
+    long getCaptured() { return captured.get(); }
+
+    /** @return Frames dropped so far because the writer was behind (or failed) */
+    long getDropped() { return dropped.get(); }
+
+    /**
+     * Writer thread: writes queued frames in order and returns their buffers to the pool
+     */
+    private void writeLoop() {
+        try {
+            while (true) {
+                Frame frame = ready.take();
+                if (frame == STOP) break;
+                if (!failed) {
+                    try {
+                        frameHeader.clear();
+                        frameHeader.putLong(frame.index).putLong(frame.nanos).flip();
+                        writeFully(frameHeader);
+                        frame.bytes.clear();
+                        writeFully(frame.bytes);
+                        captured.incrementAndGet();
+                    } catch (IOException e) {
+                        failed = true;
+                        System.err.println("Recording to " + file + " failed: " + e.getMessage());
+                    }
+                }
+                if (failed) dropped.incrementAndGet();
+                free.add(frame);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Could not close " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) channel.write(buf);
+    }
+}
@@ -0,0 +1,97 @@
+package game;
+
+import java.awt.*;
+
+/**
+ * CLASS: FrameSnapshot
+ * DESCRIPTION: Everything the renderer needs to draw one simulated tick: the visible
+ *              shapes (already rotated, scrolled to screen space and batched by material),
+ *              the car's heading line and the HUD values.
+ *              The simulation fills a snapshot, publishes it through a TripleBuffer and never
+ *              touches it again until the renderer has moved on, so once published it
+ *              doesn't change while being drawn.
+ * AUTHORS: Onkar Bajwa, Natheer Muwonge
+ */
+class FrameSnapshot {
+    private final RenderBatcher shapes;
+    private int headingX1, headingY1, headingX2, headingY2;
+    private int score;
+    private boolean paused, gameOver;
+
+    /**
+     * Constructs an empty snapshot for a viewport of the given size
+     *
+     * @param viewW Width of the visible area
+     * @param viewH Height of the visible area
+     */
+    FrameSnapshot(int viewW, int viewH) {
+        shapes = new RenderBatcher(viewW, viewH);
+    }
+
+    // Simulation side
+
+    /**
+     * Clears the snapshot so a new tick can be recorded
+     */
+    void begin() {
+        shapes.begin();
+    }
+
+    /**
+     * Records a polygon, skipped if it's not on screen
+     *
+     * @param m Material the polygon is drawn with
+     * @param poly Polygon being recorded
+     * @param scrollY Offset of the ScrollLayer the polygon lives in
+     */
+    void add(RenderBatcher.Material m, Polygon poly, double scrollY) {
+        shapes.add(m, poly, scrollY);
+    }
+
+    /**
+     * Records the car's heading indicator
+     *
+     * @param line Start and end point of the line
+     */
+    void setHeading(Point[] line) {
+        headingX1 = (int) Math.round(line[0].x);
+        headingY1 = (int) Math.round(line[0].y);
+        headingX2 = (int) Math.round(line[1].x);
+        headingY2 = (int) Math.round(line[1].y);
+    }
+
+    /**
+     * Records the values shown by the scoreboard
+     *
+     * @param score Current score
+     * @param paused true if the game is paused
+     * @param gameOver true if the game has ended
+     */
+    void setHud(int score, boolean paused, boolean gameOver) {
+        this.score = score;
+        this.paused = paused;
+        this.gameOver = gameOver;
+    }
+
+    // Render side
+
+    /**
+     * Draws the recorded shapes and the car's heading indicator
+     *
+     * @param g Graphics used for rendering
+     */
+    void paint(Graphics g) {
+        shapes.flush(g);
+        g.setColor(Color.WHITE);
+        g.drawLine(headingX1, headingY1, headingX2, headingY2);
+    }
+
+    /** @return Score at the time of the snapshot */
+    int getScore() { return score; }
+
+    /** @return true if the game was paused */
+    boolean isPaused() { return paused; }
+
+    /** @return true if the game was over */
+    boolean isGameOver() { return gameOver; }
+}
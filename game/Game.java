@@ -3,16 +3,35 @@ package game;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.file.Path;
 
 abstract class Game extends Canvas {
   protected boolean on = true;
   protected int width, height;
-  protected Image buffer;
+  protected BufferedImage buffer;
+  protected volatile int targetFrameRate = 100; // frames per second 'update' paces to
+  private long nextFrame = System.nanoTime();   // when the next frame is due
+  protected volatile FrameRecorder recorder;    // non-null while recording
   
 	public Game(String name, int inWidth, int inHeight) {  
+	  this(name, inWidth, inHeight, true);
+	}
+  
+  /*  With 'windowed' false no window is opened and nothing repaints on its
+   own, the caller drives the game by calling 'renderFrame'. Used by
+   SoakHarness, which can run on a machine without a display.
+  */
+	protected Game(String name, int inWidth, int inHeight, boolean windowed) {
 	  width = inWidth;
 	  height = inHeight;
 	  
+    // A plain int RGB image, so a recording can read its pixels directly.
+    buffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    if (!windowed) return;
+	  
 	  // Frame can be read as 'window' here.
     Frame frame = new Frame(name);
     frame.add(this);
@@ -20,26 +39,69 @@ abstract class Game extends Canvas {
     frame.setVisible(true);
     frame.setResizable(false);
     frame.addWindowListener(new WindowAdapter() { 
-      public void windowClosing(WindowEvent e) {System.exit(0);} 
+      public void windowClosing(WindowEvent e) {stopRecording(); System.exit(0);} 
     });
-    
-    buffer = createImage(width, height);
 	}
   
 	abstract public void paint(Graphics brush);
   
-  /*  Updates paints to a buffer then to the screen, then waits a tenth of
-   a second before repeating itself, assuming the game is on. This is done
+  /*  Updates paints to a buffer then to the screen, then waits until the next
+   frame is due (targetFrameRate) before repeating itself, assuming the game is on.
+   The time spent drawing counts toward the wait. This is done
    to avoid a choppy painting experience if repainted in pieces.
+   While recording, the finished buffer is also handed to the recorder.
   */  
   public void update(Graphics brush) {
-    paint(buffer.getGraphics());
+    renderFrame();
 		brush.drawImage(buffer,0,0,this);
-    if (on) {sleep(10); repaint();}
+    FrameRecorder r = recorder;
+    if (r != null) r.capture(pixels());
+    if (on) {waitForNextFrame(); repaint();}
+  }
+  
+  // 'renderFrame' paints one frame into the buffer.
+  void renderFrame() {
+    Graphics g = buffer.getGraphics();
+    paint(g);
+    g.dispose();
+  }
+  
+  /*  Starts recording every frame to 'file' (see FrameRecorder for the format).
+   Does nothing if already recording.
+  */
+  protected synchronized void startRecording(Path file) throws IOException {
+    if (recorder == null) recorder = new FrameRecorder(file, width, height);
+  }
+  
+  /*  Stops recording, waits for the queued frames to be written and reports
+   how many were kept and how many dropped. Does nothing if not recording.
+  */
+  protected synchronized void stopRecording() {
+    FrameRecorder r = recorder;
+    if (r == null) return;
+    recorder = null;
+    r.close();
+    System.out.println("Recorded " + r.getCaptured() + " frames to " + r.getFile()
+                       + " (" + r.getDropped() + " dropped)");
+  }
+  
+  // 'pixels' is the buffer's own pixel array. Touching it makes Java2D stop
+  // accelerating the buffer, so it's only asked for once recording starts.
+  private int[] pixels() {
+    return ((DataBufferInt) buffer.getRaster().getDataBuffer()).getData();
+  }
+  
+  // 'waitForNextFrame' sleeps until the next frame's deadline. If drawing has
+  // fallen far behind it starts over from now instead of rushing to catch up.
+  private void waitForNextFrame() {
+    nextFrame += 1_000_000_000L / Math.max(1, targetFrameRate);
+    long wait = nextFrame - System.nanoTime();
+    if (wait > 0) sleep(wait);
+    else if (wait < -250_000_000L) nextFrame = System.nanoTime();
   }
   
   // Sleep is a simple helper function used in 'update'.
-  private void sleep(int time) {
-    try {Thread.sleep(time);} catch(Exception exc){};
+  private void sleep(long nanos) {
+    try {Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));} catch(Exception exc){};
   }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package game;
+
+/**
+ * INTERFACE: GameStatsMXBean
+ * DESCRIPTION: Management interface RacerGame registers with the platform MBean server
+ *              as "game:type=RacerGame". Any JMX client (jconsole, VisualVM, ...) can
+ *              watch the live numbers and change the tuning attributes of a running game.
+ *              Rates and percentiles cover roughly the last second / last 512 frames.
+ * AUTHORS: Onkar Bajwa, Natheer Muwonge
+ */
+public interface GameStatsMXBean {
+    /**
+     * @return Simulation ticks completed per second
+     */
+    double getTickRate();
+
+    /**
+     * @return Median time spent producing a frame, in milliseconds
+     */
+    double getFrameTimeP50Millis();
+
+    /**
+     * @return 95th percentile time spent producing a frame, in milliseconds
+     */
+    double getFrameTimeP95Millis();
+
+    /**
+     * @return 99th percentile time spent producing a frame, in milliseconds
+     */
+    double getFrameTimeP99Millis();
+
+    /**
+     * @return Number of obstacles currently in play
+     */
+    int getLiveObstacles();
+
+    /**
+     * @return Number of coins currently in play
+     */
+    int getLiveCoins();
+
+    /**
+     * @return Number of obstacles queued in each lane, left to right
+     */
+    int[] getObstacleLaneOccupancy();
+
+    /**
+     * @return Number of coins queued in each lane, left to right
+     */
+    int[] getCoinLaneOccupancy();
+
+    /**
+     * @return Exact car-vs-entity collision tests run per second
+     */
+    double getCollisionTestsPerSecond();
+
+    /**
+     * @return Frames written by the current recording (F9), 0 when not recording
+     */
+    long getFramesRecorded();
+
+    /**
+     * @return Frames the current recording had to drop because the writer fell behind
+     */
+    long getFramesDropped();
+
+    /**
+     * @return Frames between obstacle waves
+     */
+    int getSpawnIntervalTicks();
+
+    /**
+     * @param ticks Frames between obstacle waves (40 at the least)
+     */
+    void setSpawnIntervalTicks(int ticks);
+
+    /**
+     * @return Pixels per frame obstacles scroll upward
+     */
+    double getObstacleSpeed();
+
+    /**
+     * @param speed Pixels per frame obstacles scroll upward
+     */
+    void setObstacleSpeed(double speed);
+
+    /**
+     * @return Frames per second the game is paced to
+     */
+    int getTargetFrameRate();
+
+    /**
+     * @param fps Frames per second the game is paced to
+     */
+    void setTargetFrameRate(int fps);
+}
@@ -0,0 +1,123 @@
+package game;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * CLASS: LaneQueues
+ * DESCRIPTION: Holds scrolling entities in one queue per lane, oldest first.
+ *              Everything in a lane spawns at the same height and scrolls at the same
+ *              speed, so the oldest entity is always the one closest to leaving the screen.
+ *              Retiring entities only has to look at the head of each queue.
+ *              Implements Iterable so the whole set can still be walked in a for-each loop.
+ * AUTHORS: Onkar Bajwa, Natheer Muwonge
+ */
+class LaneQueues<T> implements Iterable<T> {
+    private final List<ArrayDeque<T>> lanes;
+    private int size = 0;
+
+    /**
+     * Constructs an empty set of lane queues
+     *
+     * @param laneCount Number of lanes
+     */
+    LaneQueues(int laneCount) {
+        lanes = new ArrayList<>(laneCount);
+        for (int i = 0; i < laneCount; i++) lanes.add(new ArrayDeque<>());
+    }
+
+    /**
+     * Adds a newly spawned entity to the back of its lane
+     *
+     * @param lane Index of the lane the entity spawned in
+     * @param e The entity
+     */
+    void add(int lane, T e) {
+        lanes.get(lane).addLast(e);
+        size++;
+    }
+
+    /**
+     * Gets the queue of a single lane, oldest entity first
+     *
+     * @param lane Index of the lane
+     * @return The entities in that lane
+     */
+    ArrayDeque<T> lane(int lane) {
+        return lanes.get(lane);
+    }
+
+    /**
+     * Gets the number of lanes
+     *
+     * @return Number of lanes
+     */
+    int laneCount() {
+        return lanes.size();
+    }
+
+    /**
+     * Gets the number of entities across every lane
+     *
+     * @return Total number of entities
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Pops entities off the head of every lane for as long as they are gone.
+     * Stops at the first entity in each lane that is still in play.
+     *
+     * @param isGone Tells if an entity should be retired
+     * @param onRetire Called with every retired entity
+     */
+    void retire(Predicate<T> isGone, Consumer<T> onRetire) {
+        for (ArrayDeque<T> lane : lanes) {
+            while (!lane.isEmpty() && isGone.test(lane.peekFirst())) {
+                onRetire.accept(lane.pollFirst());
+                size--;
+            }
+        }
+    }
+
+    /**
+     * Removes every entity from every lane
+     */
+    void clear() {
+        for (ArrayDeque<T> lane : lanes) lane.clear();
+        size = 0;
+    }
+
+    /**
+     * Iterates over every entity, one lane after another
+     *
+     * @return Iterator over all entities
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int laneIdx = 0;
+            private Iterator<T> current = lanes.get(0).iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && laneIdx < lanes.size() - 1) {
+                    current = lanes.get(++laneIdx).iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return current.next();
+            }
+        };
+    }
+}
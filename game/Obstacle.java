@@ -6,55 +6,70 @@ import java.awt.*;
  * CLASS: Obstacle
  * DESCRIPTION: This class represents the logic and creation of Obstacles in the game.
  *              If the players car collides with an obstacle, the game ends.
+ *              Obstacles never change once spawned; their ScrollLayer does the scrolling.
  *              Extends Polygon, implements Updatable (for move/paint).
  * AUTHORS: Onkar Bajwa, Natheer Muwonge
  */
 
 class Obstacle extends Polygon implements Updatable {
-    private double speedY = 4.0; // pixels/frame upward
+    static final Color FILL = new Color(220, 70, 70);
+    static final double SPEED_Y = 4.0; // default pixels/frame upward
+
+    private final ScrollLayer layer;
+    private final double maxY; // bottom edge in world space, fixed since obstacles don't move
 
     /**
      * Constructs a new Obstacle with the specified shape, position, and rotation.
-     * 
-     * @param inShape Point array holding points that make the shape of the obstacle
-     * @param inPosition Point that has the initial position of the obstacle
+     *
+     * @param inShape PolygonShape of the obstacle, shared by every obstacle that looks the same
+     * @param inPosition Point that has the initial position of the obstacle, in the layer's world space
      * @param inRotation Initial degree of rotation for the obstacle
+     * @param inLayer ScrollLayer that scrolls the obstacle up the screen
      */
-    Obstacle(Point[] inShape, Point inPosition, double inRotation) {
+    Obstacle(PolygonShape inShape, Point inPosition, double inRotation, ScrollLayer inLayer) {
         super(inShape, inPosition, inRotation);
+        layer = inLayer;
+
+        Point[] pts = this.getPoints();
+        double bottom = pts[0].y;
+        for (int i = 1; i < pts.length; i++) {
+            if (pts[i].y > bottom) bottom = pts[i].y;
+        }
+        maxY = bottom;
     }
 
     /**
-     * Updates the obstacle's position by moving it upward.
+     * Obstacles hold still in world space, the scrolling comes from their layer.
      */
     @Override
-    public void move() {
-        this.position.y -= speedY;
-    }
+    public void move() {}
 
     /**
      * Check if the obstacle has scrolled completely off the top of the screen
-     * 
-     * @param screenHeight Height of the game window
+     *
      * @return true if bottom edge of the obstacle is off the screen
      */
-    public boolean isOffscreen(int screenHeight) {
-        Point[] pts = this.getPoints();
-        double maxY = pts[0].y;
-        for (int i = 1; i < pts.length; i++) {
-            if (pts[i].y > maxY) maxY = pts[i].y;
-        }
-        return maxY < 0;
+    public boolean isOffscreen() {
+        return maxY - layer.getOffset() < 0;
+    }
+
+    /**
+     * Gets the layer the obstacle scrolls with
+     *
+     * @return ScrollLayer of the obstacle
+     */
+    public ScrollLayer getLayer() {
+        return layer;
     }
 
     /**
      * Renders the obstacles on the screen as red polygons
-     * 
+     *
      * @param g graphics used for rendering
      */
     @Override
     public void paint(Graphics g) {
-        Point[] pts = this.getPoints();
+        Point[] pts = this.getPoints(layer.getOffset());
         int n = pts.length;
         int[] xs = new int[n];
         int[] ys = new int[n];
@@ -62,27 +77,7 @@ class Obstacle extends Polygon implements Updatable {
             xs[i] = (int) Math.round(pts[i].x);
             ys[i] = (int) Math.round(pts[i].y);
         }
-        g.setColor(new Color(220, 70, 70));
+        g.setColor(FILL);
         g.fillPolygon(xs, ys, n);
     }
-
-    // Optional tuning
-
-    /**
-     * Sets upward speed of the obstacles. Can be used for difficulty adjustment
-     * 
-     * @param v New speed value
-     */
-    public void setSpeedY(double v) { 
-        speedY = v; 
-    }
-
-    /**
-     * Gets the current upward speed of the obstacles
-     * 
-     * @return Current speed of obstacles
-     */
-    public double getSpeedY() { 
-        return speedY; 
-    }
 }
@@ -12,6 +12,14 @@ USAGE: You are intended to instantiate this class with a set of points that
        of the points you provide are used, in other words: {(0,1),(1,1),(1,0)}
        is the same shape as {(9,10),(10,10),(10,9)}.
 NOTE: You don't need to worry about the "magic math" details.
+      Since the shape never changes, everything about it that collision
+      tests need (its center, a bounding circle, its convex hull and, for
+      concave shapes, a split into as few convex pieces as it easily can,
+      each with a bounding box) is worked out once per shape by
+      PolygonShape, which polygons of the same shape can share.
+      Points away from the shape stop at the circle or hull; points near a
+      concave shape are only fully tested against pieces whose box holds
+      them. Shapes that cross themselves use the original ray cast.
 
 */
 
@@ -20,92 +28,147 @@ class Polygon {
   public Point position;   // The offset mentioned above.
   public double rotation; // Zero degrees is due east.
   
+  // Taken from the shape's PolygonShape, in the same coordinates as the shape.
+  private Point center;        // What the shape rotates around.
+  private double radius;       // Bounding circle around the center.
+  private Point[] hull;        // Convex hull, counter-clockwise.
+  private boolean convex;      // True if the shape is its own hull.
+  private Point[][] pieces;    // Convex pieces of a concave shape (null if
+                               // convex, or if it couldn't be split).
+  private double[][] pieceBounds; // {minX, minY, maxX, maxY} of each piece.
+  
+  // Sine and cosine of the rotation they were last worked out for.
+  private double trigRotation = Double.NaN, cos, sin;
+  
+  // Tick CollisionScheduler next tests this shape on. Only counts while
+  // 'checkEpoch' matches the scheduler's, so it can drop them all at once.
+  long nextCheckTick;
+  int checkEpoch = -1;
+  
   public Polygon(Point[] inShape, Point inPosition, double inRotation) {
-    shape = inShape;
+    this(new PolygonShape(inShape), inPosition, inRotation);
+  }
+  
+  // This version reuses a shape that was already worked out, so making many
+  // polygons of the same shape only costs their position and rotation.
+  public Polygon(PolygonShape inShape, Point inPosition, double inRotation) {
+    shape = inShape.points;
     position = inPosition;
     rotation = inRotation;
     
-    // First, we find the shape's top-most left-most boundary, its origin.
-    Point origin = shape[0].clone();
-    for (Point p : shape) {
-      if (p.x < origin.x) origin.x = p.x;
-      if (p.y < origin.y) origin.y = p.y;
-    }
-    
-    // Then, we orient all of its points relative to the real origin.
-    for (Point p : shape) {
-      p.x -= origin.x;
-      p.y -= origin.y;
-    }
+    center = inShape.center;
+    radius = inShape.radius;
+    hull = inShape.hull;
+    convex = inShape.convex;
+    pieces = inShape.pieces;
+    pieceBounds = inShape.pieceBounds;
   }
   
   // "getPoints" applies the rotation and offset to the shape of the polygon.
-  public Point[] getPoints() {
-    Point center = findCenter();
+  public Point[] getPoints() {return getPoints(0);}
+  
+  // This version also moves the points up by "scrollY", turning a polygon
+  // placed in a scrolled world (see ScrollLayer) into screen coordinates.
+  public Point[] getPoints(double scrollY) {
+    updateTrig();
     Point[] points = new Point[shape.length];
     for (int i = 0; i < shape.length; i++) {
 //    for (Point p : shape) {
       Point p = shape[i];
-      double x = ((p.x-center.x) * Math.cos(Math.toRadians(rotation)))
-               - ((p.y-center.y) * Math.sin(Math.toRadians(rotation)))
+      double x = ((p.x-center.x) * cos)
+               - ((p.y-center.y) * sin)
                + center.x + position.x;
-      double y = ((p.x-center.x) * Math.sin(Math.toRadians(rotation)))
-               + ((p.y-center.y) * Math.cos(Math.toRadians(rotation)))
-               + center.y + position.y;
+      double y = ((p.x-center.x) * sin)
+               + ((p.y-center.y) * cos)
+               + center.y + position.y - scrollY;
       points[i] = new Point(x,y);
     }
     return points;
   }
   
-  // "contains" implements some magical math (i.e. the ray-casting algorithm).
+  // "contains" undoes the offset and rotation on the point instead of applying
+  // them to every point of the shape, then rules it out as cheaply as it can:
+  // bounding circle first, then the convex hull, then the convex pieces.
   public boolean contains(Point point) {
-    Point[] points = getPoints();
-    double crossingNumber = 0;
-    for (int i = 0, j = 1; i < shape.length; i++, j=(j+1)%shape.length) {
-      if ((((points[i].x < point.x) && (point.x <= points[j].x)) ||
-           ((points[j].x < point.x) && (point.x <= points[i].x))) &&
-          (point.y > points[i].y + (points[j].y-points[i].y)/
-           (points[j].x - points[i].x) * (point.x - points[i].x))) {
-        crossingNumber++;
-      }
+    updateTrig();
+    double dx = point.x - position.x - center.x;
+    double dy = point.y - position.y - center.y;
+    if (dx*dx + dy*dy > radius*radius) return false;
+    
+    double x = dx*cos + dy*sin + center.x;
+    double y = -dx*sin + dy*cos + center.y;
+    if (!PolygonShape.insideConvex(hull, x, y)) return false;
+    if (convex) return true;
+    if (pieces == null) return rayCast(x, y);
+    for (int i = 0; i < pieces.length; i++) {
+      double[] b = pieceBounds[i];
+      if (x < b[0] || y < b[1] || x > b[2] || y > b[3]) continue;
+      if (PolygonShape.insideConvex(pieces[i], x, y)) return true;
     }
-    return crossingNumber%2 == 1;
+    return false;
   }
     public boolean collides(Polygon other) {
+      return collides(other, 0);
+    }
+    
+    // Same as above, for an "other" that lives in a world scrolled by "otherScrollY".
+    public boolean collides(Polygon other, double otherScrollY) {
+      // bounding circles that don't touch rule out any collision
+      double dx = (this.position.x + this.center.x) - (other.position.x + other.center.x);
+      double dy = (this.position.y + this.center.y) - (other.position.y + other.center.y - otherScrollY);
+      double reach = this.radius + other.radius;
+      if (dx*dx + dy*dy > reach*reach) return false;
+      
       // any vertex of A inside B?
-      for (Point p : this.getPoints()) if (other.contains(p)) return true;
-      for (Point p : other.getPoints()) if (this.contains(p)) return true;
+      for (Point p : this.getPoints()) {
+        if (other.contains(new Point(p.x, p.y + otherScrollY))) return true;
+      }
+      for (Point p : other.getPoints(otherScrollY)) if (this.contains(p)) return true;
       return false;
     }
 
   
   public void rotate(int degrees) {rotation = (rotation+degrees)%360;}
   
+  // "getWorldCenter" is the point the shape rotates around, with the offset applied.
+  Point getWorldCenter() {
+    return new Point(center.x + position.x, center.y + position.y);
+  }
+  
+  // "getBoundingRadius" is the farthest any point gets from the center. Since
+  // the shape rotates around that center, rotating never changes the result.
+  double getBoundingRadius() {
+    return radius;
+  }
+  
   /*
   The following methods are private access restricted because, as this access
   level always implies, they are intended for use only as helpers of the
   methods in this class that are not private. They can't be used anywhere else.
   */
   
-  // "findArea" implements some more magic math.
-  private double findArea() {
-    double sum = 0;
-    for (int i = 0, j = 1; i < shape.length; i++, j=(j+1)%shape.length) {
-      sum += shape[i].x*shape[j].y-shape[j].x*shape[i].y;
+  // "updateTrig" only calls Math.cos/sin again when the rotation has changed.
+  private void updateTrig() {
+    if (rotation != trigRotation) {
+      double rad = Math.toRadians(rotation);
+      cos = Math.cos(rad);
+      sin = Math.sin(rad);
+      trigRotation = rotation;
     }
-    return Math.abs(sum/2);
   }
   
-  // "findCenter" implements another bit of math.
-  private Point findCenter() {
-    Point sum = new Point(0,0);
+  // "rayCast" is the original magical math (the ray-casting algorithm), on
+  // shape coordinates. Only used for shapes that couldn't be split up.
+  private boolean rayCast(double x, double y) {
+    int crossingNumber = 0;
     for (int i = 0, j = 1; i < shape.length; i++, j=(j+1)%shape.length) {
-      sum.x += (shape[i].x + shape[j].x)
-               * (shape[i].x * shape[j].y - shape[j].x * shape[i].y);
-      sum.y += (shape[i].y + shape[j].y)
-               * (shape[i].x * shape[j].y - shape[j].x * shape[i].y);
+      if ((((shape[i].x < x) && (x <= shape[j].x)) ||
+           ((shape[j].x < x) && (x <= shape[i].x))) &&
+          (y > shape[i].y + (shape[j].y-shape[i].y)/
+           (shape[j].x - shape[i].x) * (x - shape[i].x))) {
+        crossingNumber++;
+      }
     }
-    double area = findArea();
-    return new Point(Math.abs(sum.x/(6*area)),Math.abs(sum.y/(6*area)));
+    return crossingNumber%2 == 1;
   }
-}
\ No newline at end of file
+}
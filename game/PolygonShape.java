@@ -0,0 +1,278 @@
+package game;
+
+/*
+CLASS: PolygonShape
+DESCRIPTION: The part of a polygon that never changes: its points, and
+             everything collision tests need to know about them (the center,
+             a bounding circle, the convex hull and, for concave shapes, a
+             split into convex pieces each with a bounding box).
+USAGE: Make one for each distinct shape, ideally once in a static field, and
+       hand it to every Polygon with that shape. Working out the pieces of a
+       detailed shape takes far longer than a tick, so it shouldn't happen
+       every time something spawns. The points are copied and moved so their
+       top-most left-most boundary is the origin, just like Polygon does.
+NOTE: Nothing here changes after construction, so one PolygonShape can be
+      shared by any number of polygons.
+
+*/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class PolygonShape {
+  final Point[] points;        // The shape, relative to its origin.
+  final Point center;          // What the shape rotates around.
+  final double radius;         // Bounding circle around the center.
+  final Point[] hull;          // Convex hull, counter-clockwise.
+  final boolean convex;        // True if the shape is its own hull.
+  final Point[][] pieces;      // Convex pieces of a concave shape (null if
+                               // convex, or if it couldn't be split).
+  final double[][] pieceBounds; // {minX, minY, maxX, maxY} of each piece.
+
+  public PolygonShape(Point[] inShape) {
+    points = new Point[inShape.length];
+    for (int i = 0; i < inShape.length; i++) points[i] = inShape[i].clone();
+
+    // First, we find the shape's top-most left-most boundary, its origin.
+    Point origin = points[0].clone();
+    for (Point p : points) {
+      if (p.x < origin.x) origin.x = p.x;
+      if (p.y < origin.y) origin.y = p.y;
+    }
+
+    // Then, we orient all of its points relative to the real origin.
+    for (Point p : points) {
+      p.x -= origin.x;
+      p.y -= origin.y;
+    }
+
+    // Finally, we precompute what the collision tests need.
+    center = findCenter();
+    double r = 0;
+    for (Point p : points) {
+      r = Math.max(r, Math.hypot(p.x - center.x, p.y - center.y));
+    }
+    radius = r;
+    hull = findHull();
+    convex = isConvex();
+    pieces = !convex && isSimple() ? findConvexPieces() : null;
+    if (pieces != null) {
+      pieceBounds = new double[pieces.length][];
+      for (int i = 0; i < pieces.length; i++) pieceBounds[i] = findBounds(pieces[i]);
+    } else {
+      pieceBounds = null;
+    }
+  }
+
+  // "cross" tells which side of the line a->b the point (x,y) is on:
+  // positive is counter-clockwise, negative clockwise, zero on the line.
+  static double cross(Point a, Point b, double x, double y) {
+    return (b.x - a.x) * (y - a.y) - (b.y - a.y) * (x - a.x);
+  }
+
+  // "insideConvex" works for any counter-clockwise convex polygon. Points on
+  // an edge count as inside, so pieces that share an edge leave no gaps.
+  static boolean insideConvex(Point[] poly, double x, double y) {
+    for (int i = 0, j = 1; i < poly.length; i++, j=(j+1)%poly.length) {
+      if (cross(poly[i], poly[j], x, y) < 0) return false;
+    }
+    return true;
+  }
+
+  /*
+  The following methods are private access restricted because they are only
+  helpers of the constructor.
+  */
+
+  // "findArea" implements some more magic math.
+  private double findArea() {
+    double sum = 0;
+    for (int i = 0, j = 1; i < points.length; i++, j=(j+1)%points.length) {
+      sum += points[i].x*points[j].y-points[j].x*points[i].y;
+    }
+    return Math.abs(sum/2);
+  }
+
+  // "findCenter" implements another bit of math.
+  private Point findCenter() {
+    Point sum = new Point(0,0);
+    for (int i = 0, j = 1; i < points.length; i++, j=(j+1)%points.length) {
+      sum.x += (points[i].x + points[j].x)
+               * (points[i].x * points[j].y - points[j].x * points[i].y);
+      sum.y += (points[i].y + points[j].y)
+               * (points[i].x * points[j].y - points[j].x * points[i].y);
+    }
+    double area = findArea();
+    return new Point(Math.abs(sum.x/(6*area)),Math.abs(sum.y/(6*area)));
+  }
+
+  // "findHull" is Andrew's monotone chain: sort the points, then build the
+  // lower and upper halves of the hull, dropping any point that turns clockwise.
+  private Point[] findHull() {
+    Point[] sorted = points.clone();
+    Arrays.sort(sorted, (a, b) -> a.x != b.x ? Double.compare(a.x, b.x)
+                                                       : Double.compare(a.y, b.y));
+    Point[] chain = new Point[2 * sorted.length];
+    int k = 0;
+    for (Point p : sorted) {
+      while (k >= 2 && cross(chain[k-2], chain[k-1], p.x, p.y) <= 0) k--;
+      chain[k++] = p;
+    }
+    for (int i = sorted.length - 2, lower = k + 1; i >= 0; i--) {
+      Point p = sorted[i];
+      while (k >= lower && cross(chain[k-2], chain[k-1], p.x, p.y) <= 0) k--;
+      chain[k++] = p;
+    }
+    return Arrays.copyOf(chain, k - 1);
+  }
+
+  // "isConvex" checks that the shape never turns the other way, goes around
+  // exactly once (a pentagram turns one way too, but twice around), and
+  // that every corner is a corner of the hull.
+  private boolean isConvex() {
+    int n = points.length, sign = 0, corners = 0;
+    double turning = 0;
+    for (int i = 0; i < n; i++) {
+      Point a = points[i], b = points[(i+1)%n], c = points[(i+2)%n];
+      double turn = cross(a, b, c.x, c.y);
+      if (turn == 0) continue;
+      corners++;
+      if (sign == 0) sign = turn > 0 ? 1 : -1;
+      else if ((turn > 0 ? 1 : -1) != sign) return false;
+      double dot = (b.x - a.x) * (c.x - b.x) + (b.y - a.y) * (c.y - b.y);
+      turning += Math.atan2(turn, dot);
+    }
+    return Math.abs(Math.abs(turning) - 2 * Math.PI) < 1e-6 && corners == hull.length;
+  }
+
+  // "isSimple" checks that no two edges cross, other than neighbours
+  // meeting at their shared point.
+  private boolean isSimple() {
+    int n = points.length;
+    for (int i = 0; i < n; i++) {
+      for (int j = i + 1; j < n; j++) {
+        if (j == i + 1 || (i == 0 && j == n - 1)) continue; // neighbours
+        Point a = points[i], b = points[(i+1)%n], c = points[j], d = points[(j+1)%n];
+        double d1 = cross(a, b, c.x, c.y), d2 = cross(a, b, d.x, d.y);
+        double d3 = cross(c, d, a.x, a.y), d4 = cross(c, d, b.x, b.y);
+        if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0))
+            && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0))) return false;
+        // touching counts too, e.g. an edge passing through another's corner
+        if ((d1 == 0 && onSegment(a, b, c)) || (d2 == 0 && onSegment(a, b, d))
+            || (d3 == 0 && onSegment(c, d, a)) || (d4 == 0 && onSegment(c, d, b))) return false;
+      }
+    }
+    return true;
+  }
+
+  // "onSegment" is for a point already known to be on the line a-b.
+  private static boolean onSegment(Point a, Point b, Point p) {
+    return Math.min(a.x, b.x) <= p.x && p.x <= Math.max(a.x, b.x)
+        && Math.min(a.y, b.y) <= p.y && p.y <= Math.max(a.y, b.y);
+  }
+
+  // "findBounds" is the {minX, minY, maxX, maxY} box around some points.
+  private static double[] findBounds(Point[] pts) {
+    double[] b = {pts[0].x, pts[0].y, pts[0].x, pts[0].y};
+    for (Point p : pts) {
+      b[0] = Math.min(b[0], p.x);
+      b[1] = Math.min(b[1], p.y);
+      b[2] = Math.max(b[2], p.x);
+      b[3] = Math.max(b[3], p.y);
+    }
+    return b;
+  }
+
+  // "findConvexPieces" splits a concave shape into triangles by ear clipping:
+  // keep cutting off a corner that has no other point inside it. Then, as
+  // Hertel and Mehlhorn suggest, it removes every cut it can between two
+  // pieces whose union is still convex, in a single pass. Returns null if
+  // the shape can't be split this way.
+  private Point[][] findConvexPieces() {
+    // work counter-clockwise, leaving out points that lie on a straight edge
+    List<Point> ring = new ArrayList<>();
+    double signedArea = 0;
+    for (int i = 0, j = 1; i < points.length; i++, j=(j+1)%points.length) {
+      signedArea += points[i].x*points[j].y-points[j].x*points[i].y;
+    }
+    for (int i = 0; i < points.length; i++) {
+      Point prev = points[(i + points.length - 1) % points.length];
+      Point next = points[(i + 1) % points.length];
+      if (cross(prev, points[i], next.x, next.y) != 0) ring.add(points[i]);
+    }
+    if (signedArea < 0) Collections.reverse(ring);
+
+    List<Point[]> triangles = new ArrayList<>();
+    while (ring.size() > 3) {
+      int m = ring.size();
+      boolean clipped = false;
+      for (int i = 0; i < m && !clipped; i++) {
+        Point a = ring.get((i + m - 1) % m), b = ring.get(i), c = ring.get((i + 1) % m);
+        if (cross(a, b, c.x, c.y) <= 0) continue; // not a corner that sticks out
+        Point[] ear = {a, b, c};
+        boolean empty = true;
+        for (Point p : ring) {
+          if (p != a && p != b && p != c && insideConvex(ear, p.x, p.y)) {
+            empty = false;
+            break;
+          }
+        }
+        if (empty) {
+          triangles.add(ear);
+          ring.remove(i);
+          clipped = true;
+        }
+      }
+      if (!clipped) return null;
+    }
+    if (ring.size() == 3) triangles.add(ring.toArray(new Point[0]));
+
+    // grow each piece as far as it goes before moving on to the next one
+    List<List<Point>> merged = new ArrayList<>();
+    for (Point[] t : triangles) merged.add(new ArrayList<>(Arrays.asList(t)));
+    for (int i = 0; i < merged.size(); i++) {
+      for (int j = i + 1; j < merged.size(); ) {
+        List<Point> union = joinAcrossSharedEdge(merged.get(i), merged.get(j));
+        if (union != null && isConvexRing(union)) {
+          merged.set(i, union);
+          merged.remove(j); // the next piece has moved into slot j
+        } else {
+          j++;
+        }
+      }
+    }
+    Point[][] result = new Point[merged.size()][];
+    for (int i = 0; i < result.length; i++) result[i] = merged.get(i).toArray(new Point[0]);
+    return result;
+  }
+
+  // "joinAcrossSharedEdge" glues two counter-clockwise pieces together along
+  // the edge they share (a->b in one, b->a in the other), or returns null.
+  private static List<Point> joinAcrossSharedEdge(List<Point> p, List<Point> q) {
+    int np = p.size(), nq = q.size();
+    for (int k = 0; k < np; k++) {
+      Point a = p.get(k), b = p.get((k + 1) % np);
+      for (int m = 0; m < nq; m++) {
+        if (q.get(m) != b || q.get((m + 1) % nq) != a) continue;
+        // walk p from b all the way round to a, then q's points after a up to b
+        List<Point> union = new ArrayList<>(np + nq - 2);
+        for (int s = 1; s <= np; s++) union.add(p.get((k + s) % np));
+        for (int s = 2; s < nq; s++) union.add(q.get((m + s) % nq));
+        return union;
+      }
+    }
+    return null;
+  }
+
+  // "isConvexRing" is true if a counter-clockwise ring never turns clockwise.
+  private static boolean isConvexRing(List<Point> ring) {
+    int n = ring.size();
+    for (int i = 0; i < n; i++) {
+      Point a = ring.get(i), b = ring.get((i + 1) % n), c = ring.get((i + 2) % n);
+      if (cross(a, b, c.x, c.y) < 0) return false;
+    }
+    return true;
+  }
+}
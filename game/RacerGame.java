@@ -10,9 +10,16 @@ package game;
  */
 import java.awt.*;
 import java.awt.event.*;
-import java.util.List;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 public class RacerGame extends Game {
     // debug counter 
@@ -21,12 +28,25 @@ public class RacerGame extends Game {
     // smaller window size
     private static final int WORLD_W = 640, WORLD_H = 480;
 
+    // the simulation runs on its own thread at a fixed rate, independent of drawing
+    private static final int TICKS_PER_SECOND = 100;
+    private static final long TICK_NANOS = 1_000_000_000L / TICKS_PER_SECOND;
+    private static final long MAX_LAG_NANOS = 250_000_000L; // give up catching up past this
+
     // lanes & obstacle config
     private static final int LANE_COUNT  = 5;
     private static final int LANE_MARGIN = 12;
     private static final int OBSTACLE_W  = 36;
     private static final int OBSTACLE_H  = 36;
 
+    // shapes are worked out once here and shared by everything spawned with them
+    private static final PolygonShape OBSTACLE_SHAPE = new PolygonShape(rectShape(OBSTACLE_W, OBSTACLE_H));
+    private static final PolygonShape COIN_SHAPE = new PolygonShape(diamondShape(18, 18));
+
+    // colors reused every frame
+    private static final Color BACKGROUND   = new Color(20,20,30);
+    private static final Color LANE_DIVIDER = new Color(60,60,70);
+
     // lane patterns: 1 = spawn obstacle in that lane
     private static final int[][] OBSTACLE_PATTERNS = {
         {1,0,0,0,1},
@@ -37,13 +57,27 @@ public class RacerGame extends Game {
 
     // elements
     private Car car;
-    private final List<Obstacle> obstacles = new ArrayList<>();
-    private final List<Coin> coins = new ArrayList<>();
+    // one queue per lane, oldest first (see LaneQueues)
+    private final LaneQueues<Obstacle> obstacles = new LaneQueues<>(LANE_COUNT);
+    private final LaneQueues<Coin> coins = new LaneQueues<>(LANE_COUNT);
+
+    // road scrolling: one camera offset per speed instead of moving every entity
+    private final ScrollLayer obstacleLayer = new ScrollLayer(Obstacle.SPEED_Y);
+    private final ScrollLayer coinLayer = new ScrollLayer(Coin.MOVE_SPEED);
 
-    // state
+    // state (owned by the simulation thread)
     private boolean paused = false;
     private boolean gameOver = false;
     private int score = 0;
+    private boolean crashesEnabled = true; // off keeps one session going, see SoakHarness
+
+    // key presses from the AWT event thread, handled on the next tick
+    private final AtomicBoolean pauseRequested = new AtomicBoolean();
+    private final AtomicBoolean resetRequested = new AtomicBoolean();
+
+    // newest simulated tick, handed to the renderer without locks
+    private final TripleBuffer<FrameSnapshot> snapshots =
+        new TripleBuffer<>(() -> new FrameSnapshot(WORLD_W, WORLD_H));
 
     // inner classes
 
@@ -54,7 +88,7 @@ public class RacerGame extends Game {
     private class ObstacleSpawner {
         private final Random rng = new Random();
         // spawn less frequently
-        private final int spawnIntervalTicks; // frames between spawns
+        private volatile int spawnIntervalTicks; // frames between spawns, tunable over JMX
         private int ticksUntilSpawn;
         private int lastPatternIdx = -1;
 
@@ -67,6 +101,24 @@ public class RacerGame extends Game {
             this.spawnIntervalTicks = Math.max(40, spawnIntervalTicks);
             this.ticksUntilSpawn = this.spawnIntervalTicks;
         }
+
+        /**
+         * Changes the spawn interval, starting with the wave after the next one
+         * 
+         * @param spawnIntervalTicks Number of frames between spawns
+         */
+        void setSpawnIntervalTicks(int spawnIntervalTicks) {
+            this.spawnIntervalTicks = Math.max(40, spawnIntervalTicks);
+        }
+
+        /**
+         * Gets the number of frames between spawns
+         * 
+         * @return Frames between spawns
+         */
+        int getSpawnIntervalTicks() {
+            return spawnIntervalTicks;
+        }
         /**
          * Updates the spawner timer and spawn obstacles every tick.
          * Does nothing if game is paused or over
@@ -93,8 +145,8 @@ public class RacerGame extends Game {
                 int lane = rng.nextInt(LANE_COUNT);
                 int laneCenterX = laneW * lane + laneW / 2;
                 double px = laneCenterX - (18 / 2.0);
-                double py = WORLD_H + 20;
-                coins.add(new Coin(diamondShape(18, 18), new Point(px, py), 0));
+                double py = coinLayer.toWorldY(WORLD_H + 20);
+                coins.add(lane, new Coin(COIN_SHAPE, new Point(px, py), 0, coinLayer));
             }
         }
     }
@@ -107,18 +159,156 @@ public class RacerGame extends Game {
         /**
          * Draws the scoreboard, pause status, and game over UI
          * @param g Graphics used for rendering
+         * @param frame Snapshot holding the values to show
          */
-        void draw(Graphics g) {
+        void draw(Graphics g, FrameSnapshot frame) {
             g.setColor(Color.WHITE);
             g.setFont(new Font("SansSerif", Font.BOLD, 16));
-            g.drawString("Score: " + score, 14, 24);
-            if (paused)   g.drawString("PAUSED (P)", 14, 44);
-            if (gameOver) g.drawString("GAME OVER — press R", 14, 64);
+            g.drawString("Score: " + frame.getScore(), 14, 24);
+            if (frame.isPaused())   g.drawString("PAUSED (P)", 14, 44);
+            if (frame.isGameOver()) g.drawString("GAME OVER — press R", 14, 64);
+        }
+    }
+
+    /**
+     * INNER CLASS: Monitor
+     * DESCRIPTION: Backs the GameStatsMXBean. Numbers are collected on the simulation
+     *              thread and published once per second for JMX threads to read; tuning
+     *              requests from JMX are either safe to apply right away or queued for
+     *              the next tick. Frame times are recorded by the render thread
+     */
+    private class Monitor implements GameStatsMXBean {
+        private static final int WINDOW = 512; // frames kept for percentiles
+        private final long[] frameNanos = new long[WINDOW];
+        private int frameCount = 0; // guarded by frameNanos
+
+        private long windowStart = System.nanoTime();
+        private long windowTicks = 0;
+        private long windowTestsStart = 0;
+
+        // published by the simulation thread
+        private volatile double tickRate = 0, collisionTestsPerSecond = 0;
+        private volatile int liveObstacles = 0, liveCoins = 0;
+        private volatile int[] obstacleLanes = new int[LANE_COUNT], coinLanes = new int[LANE_COUNT];
+        private volatile double obstacleSpeed = Obstacle.SPEED_Y;
+
+        // requested by JMX, applied by the simulation thread
+        private final AtomicReference<Double> pendingObstacleSpeed = new AtomicReference<>();
+
+        /**
+         * Applies tuning that has to happen between ticks. Called by the simulation thread
+         */
+        void applyTuning() {
+            Double speed = pendingObstacleSpeed.getAndSet(null);
+            if (speed != null) {
+                obstacleLayer.setSpeed(speed);
+                collisions.invalidate(); // schedules were based on the old speed
+                obstacleSpeed = speed;
+            }
+        }
+
+        /**
+         * Records the time spent drawing one frame. Called by the render thread
+         * 
+         * @param nanos Time spent on the frame
+         */
+        void frameDone(long nanos) {
+            synchronized (frameNanos) {
+                frameNanos[frameCount++ % WINDOW] = nanos;
+            }
+        }
+
+        /**
+         * Records one tick, and publishes the rates once a second has gone by.
+         * Called by the simulation thread
+         * 
+         * @param ticked true if the game advanced (it wasn't paused or over)
+         */
+        void tickDone(boolean ticked) {
+            if (ticked) windowTicks++;
+
+            long now = System.nanoTime();
+            double seconds = (now - windowStart) / 1e9;
+            if (seconds >= 1.0) {
+                long tests = collisions.getTestsRun();
+                tickRate = windowTicks / seconds;
+                collisionTestsPerSecond = (tests - windowTestsStart) / seconds;
+                windowStart = now;
+                windowTicks = 0;
+                windowTestsStart = tests;
+
+                liveObstacles = obstacles.size();
+                liveCoins = coins.size();
+                obstacleLanes = laneSizes(obstacles);
+                coinLanes = laneSizes(coins);
+            }
+        }
+
+        /**
+         * Gets a percentile of the recent frame times
+         * 
+         * @param p Percentile between 0 and 1
+         * @return Frame time in milliseconds
+         */
+        private double frameTimePercentile(double p) {
+            long[] sorted;
+            synchronized (frameNanos) {
+                sorted = Arrays.copyOf(frameNanos, Math.min(frameCount, WINDOW));
+            }
+            if (sorted.length == 0) return 0;
+            Arrays.sort(sorted);
+            int idx = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, idx)] / 1e6;
+        }
+
+        private int[] laneSizes(LaneQueues<?> queues) {
+            int[] sizes = new int[queues.laneCount()];
+            for (int i = 0; i < sizes.length; i++) sizes[i] = queues.lane(i).size();
+            return sizes;
+        }
+
+        @Override public double getTickRate() { return tickRate; }
+        @Override public double getFrameTimeP50Millis() { return frameTimePercentile(0.50); }
+        @Override public double getFrameTimeP95Millis() { return frameTimePercentile(0.95); }
+        @Override public double getFrameTimeP99Millis() { return frameTimePercentile(0.99); }
+        @Override public int getLiveObstacles() { return liveObstacles; }
+        @Override public int getLiveCoins() { return liveCoins; }
+        @Override public int[] getObstacleLaneOccupancy() { return obstacleLanes.clone(); }
+        @Override public int[] getCoinLaneOccupancy() { return coinLanes.clone(); }
+        @Override public double getCollisionTestsPerSecond() { return collisionTestsPerSecond; }
+        @Override public long getFramesRecorded() {
+            FrameRecorder r = recorder;
+            return r != null ? r.getCaptured() : 0;
+        }
+        @Override public long getFramesDropped() {
+            FrameRecorder r = recorder;
+            return r != null ? r.getDropped() : 0;
+        }
+
+        @Override public int getSpawnIntervalTicks() { return spawner.getSpawnIntervalTicks(); }
+        @Override public void setSpawnIntervalTicks(int ticks) { spawner.setSpawnIntervalTicks(ticks); }
+
+        @Override public double getObstacleSpeed() {
+            Double pending = pendingObstacleSpeed.get();
+            return pending != null ? pending : obstacleSpeed;
+        }
+        @Override public void setObstacleSpeed(double speed) {
+            // retiring obstacles relies on them moving up the screen
+            if (!(speed > 0)) throw new IllegalArgumentException("obstacle speed must be > 0");
+            pendingObstacleSpeed.set(speed);
+        }
+
+        @Override public int getTargetFrameRate() { return targetFrameRate; }
+        @Override public void setTargetFrameRate(int fps) {
+            if (fps <= 0) throw new IllegalArgumentException("frame rate must be > 0");
+            targetFrameRate = fps;
         }
     }
 
     private final ObstacleSpawner spawner = new ObstacleSpawner(90);
     private final Scoreboard ui = new Scoreboard();
+    private final Monitor monitor = new Monitor();
+    private final CollisionScheduler collisions = new CollisionScheduler();
 
     /**
      * Constructs a new RacerGame instance
@@ -126,9 +316,22 @@ public class RacerGame extends Game {
      * Also sets up keeyboard controls for pause and reset
      */
     public RacerGame() {
-        super("RacerGame!", WORLD_W, WORLD_H);
-        this.setFocusable(true);
-        this.requestFocus();
+        this(true);
+    }
+
+    /**
+     * Constructs a new RacerGame instance, with or without a window.
+     * Without a window the simulation thread isn't started either: the caller
+     * advances the game with step() and draws it with renderFrame()
+     * 
+     * @param windowed true to open the game window and run on its own
+     */
+    RacerGame(boolean windowed) {
+        super("RacerGame!", WORLD_W, WORLD_H, windowed);
+        if (windowed) {
+            this.setFocusable(true);
+            this.requestFocus();
+        }
 
         // player car: triangle, start top-center facing down (90°)
         Point[] carPts = new Point[] {
@@ -138,16 +341,32 @@ public class RacerGame extends Game {
         double carTopLeftY = 30; // top-ish
         car = new Car(carPts, new Point(carTopLeftX, carTopLeftY), 90);
 
+        // live stats and tuning over JMX
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(monitor, new ObjectName("game:type=RacerGame"));
+        } catch (JMException e) {
+            System.err.println("RacerGame stats not available over JMX: " + e.getMessage());
+        }
+
         // movement keys
         this.addKeyListener(car);
 
-        // ANONYMOUS CLASS: KeyAdapter for pause (P) & reset (R)
+        // ANONYMOUS CLASS: KeyAdapter for pause (P), reset (R) & recording (F9)
+        // (the simulation thread picks up pause/reset on its next tick)
         this.addKeyListener(new KeyAdapter() {
             @Override public void keyPressed(KeyEvent e) {
-                if (e.getKeyCode() == KeyEvent.VK_P) paused = !paused;
-                if (e.getKeyCode() == KeyEvent.VK_R) resetGame();
+                if (e.getKeyCode() == KeyEvent.VK_P) pauseRequested.set(true);
+                if (e.getKeyCode() == KeyEvent.VK_R) resetRequested.set(true);
+                if (e.getKeyCode() == KeyEvent.VK_F9) toggleRecording();
             }
         });
+
+        if (windowed) {
+            Thread simulation = new Thread(this::runSimulation, "RacerGame-simulation");
+            simulation.setDaemon(true);
+            simulation.start();
+        }
     }
 
     /**
@@ -162,59 +381,146 @@ public class RacerGame extends Game {
 
     /**
      * Main paint method that draws everything
-     * Handles rendering, game updates, etc.
+     * Draws the newest snapshot published by the simulation thread; it never
+     * touches the car, obstacles or coins themselves
      * 
      * @param brush Graphics used for rendering game elements
      */
     public void paint(Graphics brush) {
+        long frameStart = System.nanoTime();
+        FrameSnapshot frame = snapshots.latest();
+
         // background
-        brush.setColor(new Color(20,20,30));
+        brush.setColor(BACKGROUND);
         brush.fillRect(0,0,width,height);
 
         // lane dividers
-        brush.setColor(new Color(60,60,70));
+        brush.setColor(LANE_DIVIDER);
         int laneW = WORLD_W / LANE_COUNT;
         for (int i = 1; i < LANE_COUNT; i++) {
             int x = i * laneW;
             brush.fillRect(x - 2, 0, 4, WORLD_H);
         }
 
-        if (!paused && !gameOver) {
+        // elements, batched by material (one fill per color)
+        frame.paint(brush);
+
+        // debug counter
+        counter++;
+        brush.setColor(Color.white);
+        brush.drawString("Counter is " + counter, 10, 10);
+
+        // UI
+        ui.draw(brush, frame);
+
+        monitor.frameDone(System.nanoTime() - frameStart);
+    }
+
+    /**
+     * Runs the simulation at TICKS_PER_SECOND until the game is turned off.
+     * If a tick runs late the next ones follow right away to catch up, unless
+     * it has fallen too far behind to be worth it
+     */
+    private void runSimulation() {
+        long nextTick = System.nanoTime();
+        while (on) {
+            step();
+            nextTick += TICK_NANOS;
+            long wait = nextTick - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            else if (wait < -MAX_LAG_NANOS) nextTick = System.nanoTime();
+        }
+    }
+
+    /**
+     * Advances the game by one tick: handles pause/reset requests, moves and
+     * spawns everything, checks collisions, then publishes a snapshot to draw.
+     * Only ever called from one thread (the simulation thread, or SoakHarness)
+     *
+     * @return true if the game moved on, false if it was paused or over
+     */
+    boolean step() {
+        monitor.applyTuning();
+        if (resetRequested.getAndSet(false)) resetGame();
+        if (pauseRequested.getAndSet(false)) paused = !paused;
+
+        boolean ticked = !paused && !gameOver;
+        if (ticked) {
             spawner.tick();
 
             car.move();
-            for (Coin c : coins) c.move();
+            obstacleLayer.advance();
+            coinLayer.advance();
+            updateCoins();
             updateObstacles();
 
+            // only the lanes the car overlaps can hold anything it touches,
+            // and pairs that can't touch yet are skipped by the scheduler
+            collisions.beginTick(car);
+            int[] carLanes = carLaneRange();
             // coin collection
-            for (Coin c : coins) {
-                if (!c.isCollected() && polysCollide(car, c)) {
-                    c.collect();
-                    score += 10;
+            for (int lane = carLanes[0]; lane <= carLanes[1]; lane++) {
+                for (Coin c : coins.lane(lane)) {
+                    if (!c.isCollected() && collisions.collides(car, c, coinLayer)) {
+                        c.collect();
+                        collisions.forget(c);
+                        score += 10;
+                    }
                 }
             }
             // obstacle collision
-            for (Obstacle o : obstacles) {
-                if (polysCollide(car, o)) {
-                    gameOver = true;
-                    break;
+            for (int lane = carLanes[0]; lane <= carLanes[1] && !gameOver; lane++) {
+                for (Obstacle o : obstacles.lane(lane)) {
+                    // still tested with crashes off, so the collision path gets exercised
+                    if (collisions.collides(car, o, obstacleLayer) && crashesEnabled) {
+                        gameOver = true;
+                        break;
+                    }
                 }
             }
             wrap(car);
         }
 
-        // draw elements
-        for (Coin c : coins) c.paint(brush);
-        for (Obstacle o : obstacles) o.paint(brush);
-        car.paint(brush);
+        publishSnapshot();
+        monitor.tickDone(ticked);
+        return ticked;
+    }
 
-        // debug counter
-        counter++;
-        brush.setColor(Color.white);
-        brush.drawString("Counter is " + counter, 10, 10);
+    /**
+     * @return true if the car has hit an obstacle and the game waits for R
+     */
+    boolean isGameOver() {
+        return gameOver;
+    }
 
-        // UI
-        ui.draw(brush);
+    /**
+     * Lets hitting an obstacle end the game or not. With crashes off a single
+     * session keeps going, so state that builds up over a session (and leaks
+     * in it) builds up for as long as the game runs.
+     * Only call from the thread that calls step()
+     *
+     * @param enabled false to drive straight through obstacles
+     */
+    void setCrashesEnabled(boolean enabled) {
+        crashesEnabled = enabled;
+    }
+
+    /**
+     * Records what's on screen into the producer's snapshot slot and publishes it
+     */
+    private void publishSnapshot() {
+        FrameSnapshot frame = snapshots.back();
+        frame.begin();
+        for (Coin c : coins) {
+            if (!c.isCollected()) frame.add(RenderBatcher.Material.COIN, c, coinLayer.getOffset());
+        }
+        for (Obstacle o : obstacles) {
+            frame.add(RenderBatcher.Material.OBSTACLE, o, obstacleLayer.getOffset());
+        }
+        frame.add(RenderBatcher.Material.CAR, car, 0);
+        frame.setHeading(car.getHeadingLine());
+        frame.setHud(score, paused, gameOver);
+        snapshots.publish();
     }
 
     // Helper Methods
@@ -247,19 +553,6 @@ public class RacerGame extends Game {
         };
     }
 
-    /**
-     * Detects collision between two polygons
-     * 
-     * @param a First polygon being checked
-     * @param b Second polygon being checked
-     * @return true if polygons intersect, false otherwise
-     */
-    private boolean polysCollide(Polygon a, Polygon b) {
-        for (Point p : a.getPoints()) if (b.contains(p)) return true;
-        for (Point p : b.getPoints()) if (a.contains(p)) return true;
-        return false;
-    }
-
     /**
      * Calculates the left x-coordinate for an obstacle in a lane
      * 
@@ -278,14 +571,15 @@ public class RacerGame extends Game {
      * @param pattern pattern Array where 1 indicates an obstacle spawn in that lane
      */
     private void spawnObstaclesFromPattern(int[] pattern) {
-        double spawnY = this.height + 10;  // off-screen bottom
+        double spawnY = obstacleLayer.toWorldY(this.height + 10);  // off-screen bottom
         for (int lane = 0; lane < LANE_COUNT; lane++) {
             if (pattern[lane] == 1) {
                 double x = laneLeftX(lane);
-                obstacles.add(new Obstacle(
-                    rectShape(OBSTACLE_W, OBSTACLE_H),
+                obstacles.add(lane, new Obstacle(
+                    OBSTACLE_SHAPE,
                     new Point(x, spawnY),
-                    0
+                    0,
+                    obstacleLayer
                 ));
             }
         }
@@ -307,13 +601,59 @@ public class RacerGame extends Game {
     }
 
     /**
-     * Updates all active obstacles and removes ones that have gone offscreen
-     * Uses a lamda expression to filter out obstacles
+     * Retires obstacles that have gone offscreen. Obstacles don't move on their own
+     * (obstacleLayer scrolls them), so there is nothing else to update.
+     * Only the oldest obstacle of each lane can be offscreen, so retiring stops
+     * at the first one still visible. Uses lamda expressions for the checks
      */
     private void updateObstacles() {
-        for (Obstacle o : obstacles) 
-            o.move();
-        obstacles.removeIf(o -> o.isOffscreen(this.height)); // lambda
+        obstacles.retire(o -> o.isOffscreen(), collisions::forget); // lambda
+    }
+
+    /**
+     * Spins all coins and retires ones that were collected or have gone offscreen
+     */
+    private void updateCoins() {
+        for (Coin c : coins)
+            c.move();
+        coins.retire(c -> c.isCollected() || c.isOffscreen(), collisions::forget);
+    }
+
+    /**
+     * Finds the first and last lane the car currently overlaps
+     * 
+     * @return {first lane, last lane}, or an empty range if the car is off the road
+     */
+    private int[] carLaneRange() {
+        Point[] pts = car.getPoints();
+        double minX = pts[0].x, maxX = pts[0].x;
+        for (Point p : pts) {
+            minX = Math.min(minX, p.x);
+            maxX = Math.max(maxX, p.x);
+        }
+        int laneW = WORLD_W / LANE_COUNT;
+        if (maxX < 0 || minX >= WORLD_W) return new int[] {0, -1};
+        int first = Math.max(0, (int) (minX / laneW));
+        int last  = Math.min(LANE_COUNT - 1, (int) (maxX / laneW));
+        return new int[] {first, last};
+    }
+
+    /**
+     * Starts recording frames to a new file in the working directory,
+     * or stops the recording in progress
+     */
+    private void toggleRecording() {
+        if (recorder != null) {
+            stopRecording();
+            return;
+        }
+        String file = "racer-" + System.currentTimeMillis() + ".rgfr";
+        try {
+            startRecording(Paths.get(file));
+            System.out.println("Recording to " + file + " (F9 to stop)");
+        } catch (IOException e) {
+            System.err.println("Could not start recording: " + e.getMessage());
+        }
     }
 
     /**
@@ -323,9 +663,12 @@ public class RacerGame extends Game {
     private void resetGame() {
         obstacles.clear();
         coins.clear();
+        obstacleLayer.reset();
+        coinLayer.reset();
         score = 0;
         gameOver = false;
         paused = false;
+        collisions.invalidate();
         // reset car to top-center facing down (match constructor)
         car.position.x = (WORLD_W - 56) / 2.0;
         car.position.y = 30;
@@ -340,9 +683,12 @@ public class RacerGame extends Game {
      * @param c the car being wrapped around the screen
      */
     private void wrap(Car c) {
+        double oldX = c.position.x, oldY = c.position.y;
         if (c.position.x < -60) c.position.x = WORLD_W;
         if (c.position.x > WORLD_W) c.position.x = -60;
         if (c.position.y < -60) c.position.y = WORLD_H;
         if (c.position.y > WORLD_H) c.position.y = -60;
+        // a jump isn't covered by the scheduler's speed bound
+        if (c.position.x != oldX || c.position.y != oldY) collisions.invalidate();
     }
 }
@@ -0,0 +1,115 @@
+package game;
+
+import java.awt.*;
+import java.awt.geom.Path2D;
+
+/**
+ * CLASS: RenderBatcher
+ * DESCRIPTION: Collects the outlines of every visible entity that shares a material
+ *              into a single Path2D, then fills each batch with one Graphics call.
+ *              This keeps the number of color changes per frame tied to the number
+ *              of materials rather than the number of obstacles and coins on screen.
+ * AUTHORS: Onkar Bajwa, Natheer Muwonge
+ */
+class RenderBatcher {
+
+    /**
+     * ENUM: Material
+     * DESCRIPTION: The fill (and optional outline) color shared by every entity in a batch
+     */
+    enum Material {
+        COIN(Coin.FILL, Coin.OUTLINE),
+        OBSTACLE(Obstacle.FILL, null),
+        CAR(Car.FILL, null);
+
+        final Color fill;
+        final Color outline;
+
+        Material(Color fill, Color outline) {
+            this.fill = fill;
+            this.outline = outline;
+        }
+    }
+
+    private static final Material[] MATERIALS = Material.values();
+
+    private final int viewW, viewH;
+    private final Path2D.Double[] batches = new Path2D.Double[MATERIALS.length];
+    private final int[] batchSizes = new int[batches.length];
+
+    /**
+     * Constructs a RenderBatcher that culls against a viewport of the given size
+     *
+     * @param viewW Width of the visible area
+     * @param viewH Height of the visible area
+     */
+    RenderBatcher(int viewW, int viewH) {
+        this.viewW = viewW;
+        this.viewH = viewH;
+        for (int i = 0; i < batches.length; i++) {
+            batches[i] = new Path2D.Double(Path2D.WIND_NON_ZERO, 64);
+        }
+    }
+
+    /**
+     * Clears every batch so a new frame can be collected
+     */
+    void begin() {
+        for (int i = 0; i < batches.length; i++) {
+            batches[i].reset();
+            batchSizes[i] = 0;
+        }
+    }
+
+    /**
+     * Appends a polygon to the batch for its material.
+     * Polygons that lie completely outside the viewport are skipped.
+     *
+     * @param m Material the polygon is drawn with
+     * @param poly Polygon being added
+     * @param scrollY Offset of the ScrollLayer the polygon lives in
+     * @return true if the polygon was visible and added to the batch
+     */
+    boolean add(Material m, Polygon poly, double scrollY) {
+        Point[] pts = poly.getPoints(scrollY);
+        double minX = pts[0].x, maxX = pts[0].x;
+        double minY = pts[0].y, maxY = pts[0].y;
+        for (int i = 1; i < pts.length; i++) {
+            if (pts[i].x < minX) minX = pts[i].x;
+            if (pts[i].x > maxX) maxX = pts[i].x;
+            if (pts[i].y < minY) minY = pts[i].y;
+            if (pts[i].y > maxY) maxY = pts[i].y;
+        }
+        if (maxX < 0 || maxY < 0 || minX >= viewW || minY >= viewH) return false;
+
+        // round like fillPolygon(int[], int[], int) did so the pixels stay the same
+        Path2D.Double path = batches[m.ordinal()];
+        path.moveTo(Math.round(pts[0].x), Math.round(pts[0].y));
+        for (int i = 1; i < pts.length; i++) {
+            path.lineTo(Math.round(pts[i].x), Math.round(pts[i].y));
+        }
+        path.closePath();
+        batchSizes[m.ordinal()]++;
+        return true;
+    }
+
+    /**
+     * Draws every non-empty batch, one fill (and one outline) per material.
+     * Materials are drawn in declaration order: coins, then obstacles, then the car on top.
+     *
+     * @param g Graphics used for rendering
+     */
+    void flush(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        for (Material m : MATERIALS) {
+            if (batchSizes[m.ordinal()] == 0) continue;
+            Path2D.Double path = batches[m.ordinal()];
+            g2.setColor(m.fill);
+            g2.fill(path);
+            if (m.outline != null) {
+                g2.setColor(m.outline);
+                g2.draw(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package game;
+
+/**
+ * CLASS: ScrollLayer
+ * DESCRIPTION: A camera offset for everything that scrolls up the road at the same speed.
+ *              Entities in a layer keep their spawn position in world space forever, and
+ *              the layer advances one shared offset per tick instead of moving each one.
+ *              Screen y = world y - offset, which is only worked out when drawing or
+ *              testing collisions.
+ * AUTHORS: Onkar Bajwa, Natheer Muwonge
+ */
+class ScrollLayer {
+    private double speed;        // pixels/frame upward
+    private double offset = 0.0; // total distance scrolled
+
+    /**
+     * Constructs a ScrollLayer with the specified speed
+     *
+     * @param speed Pixels the layer scrolls upward every frame
+     */
+    ScrollLayer(double speed) {
+        this.speed = speed;
+    }
+
+    /**
+     * Scrolls the layer by one frame
+     */
+    void advance() {
+        offset += speed;
+    }
+
+    /**
+     * Moves the camera back to where the layer started
+     */
+    void reset() {
+        offset = 0.0;
+    }
+
+    /**
+     * Converts a screen y-coordinate to this layer's world space, e.g. for spawning
+     *
+     * @param screenY y-coordinate on screen
+     * @return The same y-coordinate in world space
+     */
+    double toWorldY(double screenY) {
+        return screenY + offset;
+    }
+
+    /**
+     * Gets the distance scrolled so far. Subtract it from a world y to get a screen y
+     *
+     * @return Current offset
+     */
+    double getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the upward scroll speed
+     *
+     * @return Pixels scrolled per frame
+     */
+    double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Sets the upward scroll speed. Can be used for difficulty adjustment
+     *
+     * @param v New speed value
+     */
+    void setSpeed(double v) {
+        speed = v;
+    }
+}
@@ -0,0 +1,423 @@
+package game;
+
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.NotificationEmitter;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * CLASS: SoakHarness
+ * DESCRIPTION: Runs RacerGame without a window for a long time, as fast as it will go,
+ *              with scripted steering, and watches how it holds up. Every sample interval
+ *              it records heap use, allocation rate, GC pauses and tick-time percentiles
+ *              to a CSV time series. At the end it fits a trend line to the heap floor, the
+ *              number of live obstacles and coins, and the p99 tick time, and fails
+ *              (exit code 1) if any of them keeps climbing.
+ *              Crashes are switched off so one game session lasts the whole run and
+ *              anything that piles up over a session shows in the trends. The run also
+ *              fails if sessions were short (R had to be pressed), if too few ticks
+ *              actually moved the game on, or if it was too short to take enough
+ *              samples to judge a trend.
+ * USAGE: java -cp <classes> game.SoakHarness [--duration=4h] [--sample=30s]
+ *              [--report=soak-report.csv] [--seed=1] [--max-heap-growth-mb=32]
+ *              [--max-p99-growth-ms=0.5] [--min-active-share=0.9]
+ *              [--min-session-share=0.75] [--max-entity-growth=50]
+ *        Durations take an s, m or h suffix. Headless mode is switched on automatically.
+ * AUTHORS: Onkar Bajwa, Natheer Muwonge
+ */
+public class SoakHarness {
+    private static final int HEAP_PROBE_TICKS = 256;  // ticks between heap floor probes
+    private static final int STEER_TICKS = 60;        // ticks between steering changes
+    private static final double WARMUP_FRACTION = 0.25; // samples left out of the trends
+    private static final int HISTOGRAM_MICROS = 100_000; // tick times over 100 ms share the last bucket
+
+    private final long durationNanos, sampleNanos;
+    private final Path report;
+    private final Random script;
+    private final double maxHeapGrowthMb, maxP99GrowthMs, minActiveShare, minSessionShare;
+    private final double maxEntityGrowth;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final AtomicLong maxPauseMillis = new AtomicLong(); // since the last sample
+
+    /**
+     * INNER CLASS: Sample
+     * DESCRIPTION: One row of the report
+     */
+    private static class Sample {
+        double elapsedS, heapUsedMb, heapFloorMb, allocMbPerS, gcTimeMs, maxPauseMs;
+        double tickP50Ms, tickP99Ms, tickMaxMs, activeShare;
+        long ticks, gcCount;
+        int obstacles, coins;
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%.1f,%d,%.4f,%.2f,%.2f,%.2f,%d,%.1f,%d,%.4f,%.4f,%.4f,%d,%d",
+                elapsedS, ticks, activeShare, heapUsedMb, heapFloorMb, allocMbPerS, gcCount, gcTimeMs,
+                (long) maxPauseMs, tickP50Ms, tickP99Ms, tickMaxMs, obstacles, coins);
+        }
+    }
+
+    /**
+     * Constructs a SoakHarness from command line arguments
+     *
+     * @param args --name=value options, see USAGE
+     */
+    SoakHarness(String[] args) {
+        long duration = parseDuration("4h"), sample = parseDuration("30s");
+        String reportFile = "soak-report.csv";
+        long seed = 1;
+        double heapGrowth = 32, p99Growth = 0.5, activeShare = 0.9, sessionShare = 0.75;
+        double entityGrowth = 50;
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            if (kv.length != 2) throw new IllegalArgumentException("expected --name=value, got " + arg);
+            switch (kv[0]) {
+                case "--duration":           duration = parseDuration(kv[1]); break;
+                case "--sample":             sample = parseDuration(kv[1]); break;
+                case "--report":             reportFile = kv[1]; break;
+                case "--seed":               seed = Long.parseLong(kv[1]); break;
+                case "--max-heap-growth-mb": heapGrowth = Double.parseDouble(kv[1]); break;
+                case "--max-p99-growth-ms":  p99Growth = Double.parseDouble(kv[1]); break;
+                case "--min-active-share":   activeShare = Double.parseDouble(kv[1]); break;
+                case "--min-session-share":  sessionShare = Double.parseDouble(kv[1]); break;
+                case "--max-entity-growth":  entityGrowth = Double.parseDouble(kv[1]); break;
+                default: throw new IllegalArgumentException("unknown option " + kv[0]);
+            }
+        }
+        durationNanos = duration;
+        sampleNanos = sample;
+        report = Paths.get(reportFile);
+        script = new Random(seed);
+        maxHeapGrowthMb = heapGrowth;
+        maxP99GrowthMs = p99Growth;
+        minActiveShare = activeShare;
+        minSessionShare = sessionShare;
+        maxEntityGrowth = entityGrowth;
+    }
+
+    /**
+     * Main method that runs the soak test
+     *
+     * @param args see USAGE
+     * @throws Exception if the report can't be written or the game can't be set up
+     */
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+        boolean passed = new SoakHarness(args).run();
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Drives the game until the duration is up, writing a sample every interval
+     *
+     * @return true if the game kept playing and neither memory nor latency trended upward
+     * @throws IOException if the report can't be written
+     * @throws JMException if the game's stats can't be read over JMX
+     */
+    boolean run() throws IOException, JMException {
+        RacerGame game = new RacerGame(false);
+        game.setCrashesEnabled(false);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName stats = new ObjectName("game:type=RacerGame");
+        listenForPauses();
+
+        List<Sample> samples = new ArrayList<>();
+        // tick times in 1 microsecond buckets, allocated once so the
+        // harness itself doesn't add to the heap it is measuring
+        int[] tickMicros = new int[HISTOGRAM_MICROS + 1];
+        long tickCount = 0, tickMaxNanos = 0, activeCount = 0;
+        long totalTicks = 0, totalActive = 0, resets = 0;
+        boolean[] held = new boolean[3]; // W, A, D
+
+        long start = System.nanoTime();
+        long nextSample = start + sampleNanos;
+        long lastSample = start;
+        long lastAllocated = allocatedBytes();
+        long[] lastGc = gcTotals();
+        double heapFloor = Double.MAX_VALUE;
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(report))) {
+            out.println("elapsed_s,ticks,active_share,heap_used_mb,heap_floor_mb,alloc_mb_per_s,gc_count,"
+                      + "gc_time_ms,gc_max_pause_ms,tick_p50_ms,tick_p99_ms,tick_max_ms,"
+                      + "obstacles,coins");
+            while (true) {
+                if (totalTicks % STEER_TICKS == 0) steer(game, held);
+
+                long t0 = System.nanoTime();
+                boolean active = game.step();
+                game.renderFrame();
+                long t1 = System.nanoTime();
+
+                // shouldn't happen with crashes off, but never idle on the game over screen
+                if (game.isGameOver()) {
+                    tap(game, KeyEvent.VK_R);
+                    resets++;
+                }
+                if (active) {
+                    activeCount++;
+                    totalActive++;
+                }
+
+                tickMicros[(int) Math.min(HISTOGRAM_MICROS, (t1 - t0) / 1000)]++;
+                tickMaxNanos = Math.max(tickMaxNanos, t1 - t0);
+                tickCount++;
+                totalTicks++;
+
+                if (totalTicks % HEAP_PROBE_TICKS == 0) {
+                    heapFloor = Math.min(heapFloor, memory.getHeapMemoryUsage().getUsed() / 1e6);
+                }
+
+                if (t1 >= nextSample) {
+                    long[] gc = gcTotals();
+                    long allocated = allocatedBytes();
+                    Sample s = new Sample();
+                    s.elapsedS = (t1 - start) / 1e9;
+                    s.ticks = totalTicks;
+                    s.activeShare = (double) activeCount / tickCount;
+                    s.heapUsedMb = memory.getHeapMemoryUsage().getUsed() / 1e6;
+                    s.heapFloorMb = Math.min(heapFloor, s.heapUsedMb);
+                    s.allocMbPerS = allocated < 0 ? Double.NaN
+                                  : (allocated - lastAllocated) / 1e6 / ((t1 - lastSample) / 1e9);
+                    s.gcCount = gc[0] - lastGc[0];
+                    s.gcTimeMs = gc[1] - lastGc[1];
+                    s.maxPauseMs = maxPauseMillis.getAndSet(0);
+                    s.tickP50Ms = percentile(tickMicros, tickCount, 0.50) / 1e3;
+                    s.tickP99Ms = percentile(tickMicros, tickCount, 0.99) / 1e3;
+                    s.tickMaxMs = tickMaxNanos / 1e6;
+                    s.obstacles = (Integer) server.getAttribute(stats, "LiveObstacles");
+                    s.coins = (Integer) server.getAttribute(stats, "LiveCoins");
+                    samples.add(s);
+                    out.println(s.toCsv());
+                    out.flush();
+
+                    Arrays.fill(tickMicros, 0);
+                    tickCount = 0;
+                    activeCount = 0;
+                    tickMaxNanos = 0;
+                    heapFloor = Double.MAX_VALUE;
+                    lastAllocated = allocated;
+                    lastGc = gc;
+                    lastSample = t1;
+                    nextSample += sampleNanos;
+                    if (t1 - start >= durationNanos) break;
+                }
+            }
+        }
+        return verdict(samples, totalTicks, totalActive, resets);
+    }
+
+    /**
+     * Checks the trends of the samples past the warm-up and prints the result
+     *
+     * @param samples Every sample taken
+     * @param ticks Ticks run in total
+     * @param active Ticks that moved the game on (not paused or over)
+     * @param resets Times the game ended and R was pressed
+     * @return true if the run passed
+     */
+    private boolean verdict(List<Sample> samples, long ticks, long active, long resets) {
+        List<Sample> steady = samples.subList((int) (samples.size() * WARMUP_FRACTION), samples.size());
+        System.out.println("Soak report written to " + report.toAbsolutePath());
+        double share = ticks == 0 ? 0 : (double) active / ticks;
+        boolean activeOk = share >= minActiveShare;
+        System.out.printf(Locale.ROOT, "Active ticks:     %.1f%% of %d (limit %.1f%%) %s%n",
+                          share * 100, ticks, minActiveShare * 100, activeOk ? "ok" : "FAIL");
+        // a leak that a reset clears up only shows if sessions run most of the soak
+        double meanSession = (double) ticks / (resets + 1);
+        double sessionShare = ticks == 0 ? 0 : meanSession / ticks;
+        boolean sessionOk = sessionShare >= minSessionShare;
+        System.out.printf(Locale.ROOT, "Session length:   mean %.0f ticks over %d sessions, %.1f%% of the run (limit %.1f%%) %s%n",
+                          meanSession, resets + 1, sessionShare * 100, minSessionShare * 100,
+                          sessionOk ? "ok" : "FAIL");
+        if (steady.size() < 4) {
+            System.out.println("Too few samples to judge a trend (" + steady.size()
+                               + "), run longer or sample more often FAIL");
+            return false;
+        }
+        double span = steady.get(steady.size() - 1).elapsedS - steady.get(0).elapsedS;
+        double[] x = new double[steady.size()], heap = new double[x.length], p99 = new double[x.length];
+        double[] entities = new double[x.length];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = steady.get(i).elapsedS;
+            heap[i] = steady.get(i).heapFloorMb;
+            p99[i] = steady.get(i).tickP99Ms;
+            entities[i] = steady.get(i).obstacles + steady.get(i).coins;
+        }
+        double heapGrowth = slope(x, heap) * span;
+        double p99Growth = slope(x, p99) * span;
+        double entityGrowth = slope(x, entities) * span;
+        boolean heapOk = heapGrowth <= maxHeapGrowthMb;
+        boolean latencyOk = p99Growth <= maxP99GrowthMs;
+        // small entities leak too slowly to move the heap in a short run, but do pile up
+        boolean entitiesOk = entityGrowth <= maxEntityGrowth;
+        System.out.printf(Locale.ROOT, "Heap floor trend: %+.2f MB over %.0f s (limit %.2f) %s%n",
+                          heapGrowth, span, maxHeapGrowthMb, heapOk ? "ok" : "FAIL");
+        System.out.printf(Locale.ROOT, "Live entities:    %+.1f over %.0f s (limit %.1f) %s%n",
+                          entityGrowth, span, maxEntityGrowth, entitiesOk ? "ok" : "FAIL");
+        System.out.printf(Locale.ROOT, "Tick p99 trend:   %+.4f ms over %.0f s (limit %.4f) %s%n",
+                          p99Growth, span, maxP99GrowthMs, latencyOk ? "ok" : "FAIL");
+        return activeOk && sessionOk && heapOk && entitiesOk && latencyOk;
+    }
+
+    /**
+     * Changes which of W, A and D are held down, at random
+     *
+     * @param game Game receiving the key events
+     * @param held Keys currently held, updated in place
+     */
+    private void steer(RacerGame game, boolean[] held) {
+        int[] keys = {KeyEvent.VK_W, KeyEvent.VK_A, KeyEvent.VK_D};
+        for (int i = 0; i < keys.length; i++) {
+            boolean down = script.nextDouble() < (i == 0 ? 0.7 : 0.3);
+            if (down != held[i]) key(game, keys[i], down);
+            held[i] = down;
+        }
+    }
+
+    /**
+     * Presses and releases a key
+     *
+     * @param game Game receiving the key events
+     * @param keyCode Key to tap
+     */
+    private void tap(RacerGame game, int keyCode) {
+        key(game, keyCode, true);
+        key(game, keyCode, false);
+    }
+
+    /**
+     * Sends a key event to every key listener of the game, like AWT would
+     *
+     * @param game Game receiving the key event
+     * @param keyCode Key pressed or released
+     * @param down true for a press, false for a release
+     */
+    private void key(RacerGame game, int keyCode, boolean down) {
+        KeyEvent e = new KeyEvent(game, down ? KeyEvent.KEY_PRESSED : KeyEvent.KEY_RELEASED,
+                                  System.currentTimeMillis(), 0, keyCode, KeyEvent.CHAR_UNDEFINED);
+        for (KeyListener l : game.getKeyListeners()) {
+            if (down) l.keyPressed(e);
+            else l.keyReleased(e);
+        }
+    }
+
+    /**
+     * Tracks the longest GC pause, using the HotSpot GC notifications when they exist.
+     * Concurrent cycles are left out since they don't stop the game
+     */
+    private void listenForPauses() {
+        for (GarbageCollectorMXBean gc : collectors) {
+            if (!(gc instanceof NotificationEmitter)) continue;
+            ((NotificationEmitter) gc).addNotificationListener((n, handback) -> {
+                if (!"com.sun.management.gc.notification".equals(n.getType())) return;
+                CompositeData info = (CompositeData) n.getUserData();
+                String action = String.valueOf(info.get("gcAction"));
+                if (action.contains("concurrent")) return;
+                long duration = (Long) ((CompositeData) info.get("gcInfo")).get("duration");
+                maxPauseMillis.accumulateAndGet(duration, Math::max);
+            }, null, null);
+        }
+    }
+
+    /**
+     * Gets the bytes allocated so far by this thread, which runs the whole game
+     *
+     * @return Bytes allocated, or -1 if the JVM can't tell
+     */
+    private long allocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads)
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Adds up the collection count and time of every collector
+     *
+     * @return {collections, milliseconds spent collecting}
+     */
+    private long[] gcTotals() {
+        long count = 0, time = 0;
+        for (GarbageCollectorMXBean gc : collectors) {
+            count += Math.max(0, gc.getCollectionCount());
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[] {count, time};
+    }
+
+    /**
+     * Gets a percentile from a histogram
+     *
+     * @param histogram Counts per bucket, in ascending order
+     * @param total Sum of all counts
+     * @param p Percentile between 0 and 1
+     * @return Index of the bucket holding that percentile, 0 if there are no counts
+     */
+    private static int percentile(int[] histogram, long total, double p) {
+        long rank = Math.max(1, (long) Math.ceil(p * total)), seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank) return i;
+        }
+        return 0;
+    }
+
+    /**
+     * Least-squares slope of y against x
+     *
+     * @param x x values
+     * @param y y values
+     * @return Change in y per unit of x
+     */
+    private static double slope(double[] x, double[] y) {
+        double mx = 0, my = 0;
+        for (int i = 0; i < x.length; i++) { mx += x[i]; my += y[i]; }
+        mx /= x.length;
+        my /= y.length;
+        double num = 0, den = 0;
+        for (int i = 0; i < x.length; i++) {
+            num += (x[i] - mx) * (y[i] - my);
+            den += (x[i] - mx) * (x[i] - mx);
+        }
+        return den == 0 ? 0 : num / den;
+    }
+
+    /**
+     * Parses a duration such as 90s, 15m or 4h
+     *
+     * @param text Number followed by s, m or h
+     * @return The duration in nanoseconds
+     */
+    private static long parseDuration(String text) {
+        long n = Long.parseLong(text.substring(0, text.length() - 1));
+        switch (text.charAt(text.length() - 1)) {
+            case 's': return n * 1_000_000_000L;
+            case 'm': return n * 60_000_000_000L;
+            case 'h': return n * 3_600_000_000_000L;
+            default: throw new IllegalArgumentException("duration needs an s, m or h suffix: " + text);
+        }
+    }
+}
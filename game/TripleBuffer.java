@@ -0,0 +1,63 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * CLASS: TripleBuffer
+ * DESCRIPTION: Hands values from one producer thread to one consumer thread without locks.
+ *              The producer fills its own "back" slot and publishes it; the consumer always
+ *              reads the newest published slot. A third "middle" slot sits between them,
+ *              so neither side ever waits for, or writes into, the slot the other one holds.
+ *              The slot objects are reused, so the consumer should only read a slot and the
+ *              producer should only write to back().
+ * AUTHORS: Onkar Bajwa, Natheer Muwonge
+ */
+class TripleBuffer<T> {
+    private static final int INDEX_MASK = 0b011;
+    private static final int FRESH      = 0b100; // middle slot holds an unread publish
+
+    private final Object[] slots = new Object[3];
+    private final AtomicInteger middle = new AtomicInteger(1); // index | FRESH flag
+    private int back = 0;   // only touched by the producer
+    private int front = 2;  // only touched by the consumer
+
+    /**
+     * Constructs a TripleBuffer with three slots made by the given factory
+     *
+     * @param factory Creates each of the three slots
+     */
+    TripleBuffer(Supplier<T> factory) {
+        for (int i = 0; i < slots.length; i++) slots[i] = factory.get();
+    }
+
+    /**
+     * Gets the slot the producer may write into. Producer thread only
+     *
+     * @return The back slot
+     */
+    @SuppressWarnings("unchecked")
+    T back() {
+        return (T) slots[back];
+    }
+
+    /**
+     * Publishes the back slot and hands the producer a free one. Producer thread only
+     */
+    void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Gets the newest published slot, which stays valid until the next call. Consumer thread only
+     *
+     * @return The front slot
+     */
+    @SuppressWarnings("unchecked")
+    T latest() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return (T) slots[front];
+    }
+}